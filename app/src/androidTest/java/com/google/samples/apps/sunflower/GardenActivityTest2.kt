@@ -2,7 +2,6 @@ package com.google.samples.apps.sunflower
 
 
 import androidx.test.espresso.IdlingRegistry
-import androidx.test.espresso.idling.concurrent.IdlingThreadPoolExecutor
 import androidx.test.ext.junit.rules.activityScenarioRule
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.LargeTest
@@ -10,16 +9,14 @@ import com.android.example.github.util.TaskExecutorWithIdlingResourceRule
 import com.example.android.architecture.blueprints.todoapp.util.DataBindingIdlingResource
 import com.example.android.architecture.blueprints.todoapp.util.monitorActivity
 import com.google.samples.apps.sunflower.page.MyGardenPage
-import com.google.samples.apps.sunflower.viewmodels.PlantDetailViewModel
-import kotlinx.coroutines.asCoroutineDispatcher
+import com.google.samples.apps.sunflower.util.CoroutineIdlingResource
+import com.google.samples.apps.sunflower.utilities.CoroutineDispatcherProvider
+import com.google.samples.apps.sunflower.utilities.InjectorUtils
 import org.junit.After
 import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
-import java.util.*
-import java.util.concurrent.LinkedBlockingDeque
-import java.util.concurrent.TimeUnit
 
 @LargeTest
 @RunWith(AndroidJUnit4::class)
@@ -33,29 +30,24 @@ class GardenActivityTest2 {
 
     private val dataBindingIdlingResource = DataBindingIdlingResource()
 
-    // resourceName of IdlingThreadPoolExecutor must be unique
-    private var idlingThreadPoolExecutor = IdlingThreadPoolExecutor("coroutine dispatcher id=${UUID.randomUUID()}",
-            2,
-            10,
-            0,
-            TimeUnit.MILLISECONDS,
-            LinkedBlockingDeque<Runnable>()
-    ) { Thread(it) }
+    private val coroutineIdlingResource = CoroutineIdlingResource()
 
     @Before
     fun setUp() {
         val idlingRegistry = IdlingRegistry.getInstance()
-        PlantDetailViewModel.overrideDispatcher = idlingThreadPoolExecutor.asCoroutineDispatcher()
+        InjectorUtils.dispatcherProvider =
+                CoroutineDispatcherProvider(default = coroutineIdlingResource.dispatcher)
+        idlingRegistry.register(coroutineIdlingResource)
         dataBindingIdlingResource.monitorActivity(activityScenarioRule.scenario)
         idlingRegistry.register(dataBindingIdlingResource)
     }
 
     @After
     fun tearDown() {
-        IdlingRegistry.getInstance().unregister(dataBindingIdlingResource)
-        // Shutdown IdlingThreadPoolExecutor in order to unregister it.
-        PlantDetailViewModel.overrideDispatcher = null
-        idlingThreadPoolExecutor.shutdown()
+        IdlingRegistry.getInstance()
+                .unregister(dataBindingIdlingResource, coroutineIdlingResource)
+        dataBindingIdlingResource.release()
+        InjectorUtils.dispatcherProvider = CoroutineDispatcherProvider()
     }
 
     @Test
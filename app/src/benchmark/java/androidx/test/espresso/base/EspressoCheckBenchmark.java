@@ -0,0 +1,60 @@
+package androidx.test.espresso.base;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.samples.apps.sunflower.GardenActivity;
+import com.google.samples.apps.sunflower.InMemoryTestApplication;
+import com.google.samples.apps.sunflower.R;
+import com.google.samples.apps.sunflower.TestIsolation;
+import com.google.samples.apps.sunflower.benchmark.MicroBench;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import static androidx.test.espresso.Espresso.onView;
+import static androidx.test.espresso.assertion.ViewAssertions.matches;
+import static androidx.test.espresso.matcher.ViewMatchers.isDisplayed;
+import static androidx.test.espresso.matcher.ViewMatchers.withId;
+
+/**
+ * Measures the garbage that {@link IdlingLocalUiController} produces for Espresso interactions
+ * with a quiet UI, where the main looper is idle and no idling resource is busy. The bytes per check
+ * and the collections during the run are in the results of {@link MicroBench}.
+ */
+@RunWith(AndroidJUnit4.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(application = InMemoryTestApplication.class)
+public class EspressoCheckBenchmark {
+    @Rule
+    public TestName testName = new TestName();
+
+    private ActivityScenario<GardenActivity> scenario;
+
+    @Before
+    public void setUp() {
+        scenario = ActivityScenario.launch(GardenActivity.class);
+        check();
+    }
+
+    @After
+    public void tearDown() {
+        scenario.close();
+        TestIsolation.INSTANCE.reset();
+    }
+
+    @Test
+    public void check_idle() throws Exception {
+        MicroBench.measure(getClass().getSimpleName(), testName.getMethodName(), this::check);
+    }
+
+    private void check() {
+        onView(withId(R.id.view_pager)).check(matches(isDisplayed()));
+    }
+}
@@ -0,0 +1,233 @@
+package androidx.test.espresso.base;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.MessageQueue;
+
+import androidx.test.espresso.IdlingRegistry;
+import androidx.test.espresso.IdlingResource;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.samples.apps.sunflower.benchmark.MicroBench;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Benchmarks the loops that {@link IdlingLocalUiController} and {@link PausedLooperInterrogator}
+ * run for every Espresso interaction, using synthetic main looper queues.
+ */
+@RunWith(AndroidJUnit4.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class IdlingLoopBenchmark {
+    private static final int MESSAGES = 100;
+    // number of main looper hops a busy idling resource needs to become idle.
+    private static final int BUSY_HOPS = 10;
+    // DataBindingIdlingResource re-checks its state once per frame.
+    private static final long FRAME_MILLIS = 16L;
+    // suites register an idling resource per database, executor, binding and so on.
+    private static final int IDLE_RESOURCES = 50;
+
+    private static final Runnable NO_OP = () -> {};
+
+    @Rule
+    public TestName testName = new TestName();
+
+    private Handler handler;
+    private IdlingLocalUiController controller;
+    private HopCountingIdlingResource busyResource;
+    private final List<IdlingResource> idleResources = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        handler = new Handler(Looper.getMainLooper());
+        controller = new IdlingLocalUiController();
+    }
+
+    @After
+    public void tearDown() {
+        if (busyResource != null) {
+            IdlingRegistry.getInstance().unregister(busyResource);
+        }
+        IdlingRegistry.getInstance().unregister(idleResources.toArray(new IdlingResource[0]));
+    }
+
+    @Test
+    public void interrogator_immediateMessages() throws Exception {
+        measure(() -> {
+            postImmediate(MESSAGES);
+            PausedLooperInterrogator.loopAndInterrogate(new UntilEmpty());
+        });
+    }
+
+    @Test
+    public void interrogator_delayedMessages() throws Exception {
+        measure(() -> {
+            postDelayed(MESSAGES);
+            PausedLooperInterrogator.loopAndInterrogate(new UntilEmpty(), Long.MAX_VALUE);
+        });
+    }
+
+    @Test
+    public void interrogator_barrier() throws Exception {
+        MessageQueue queue = Looper.getMainLooper().getQueue();
+        measure(() -> {
+            int token = ReflectionHelpers.<Integer>callInstanceMethod(queue, "postSyncBarrier");
+            postImmediate(MESSAGES);
+            Message removeBarrier =
+                    Message.obtain(
+                            handler,
+                            () ->
+                                    ReflectionHelpers.callInstanceMethod(
+                                            queue,
+                                            "removeSyncBarrier",
+                                            ReflectionHelpers.ClassParameter.from(int.class, token)));
+            removeBarrier.setAsynchronous(true);
+            handler.sendMessage(removeBarrier);
+            PausedLooperInterrogator.loopAndInterrogate(new UntilEmpty());
+        });
+    }
+
+    @Test
+    public void controller_loopMainThreadUntilIdle_immediateMessages() throws Exception {
+        measure(() -> {
+            postImmediate(MESSAGES);
+            controller.loopMainThreadUntilIdle();
+        });
+    }
+
+    @Test
+    public void controller_loopMainThreadUntilIdle_idle() throws Exception {
+        measure(controller::loopMainThreadUntilIdle);
+    }
+
+    @Test
+    public void controller_loopMainThreadForAtLeast_delayedMessages() throws Exception {
+        measure(() -> {
+            postDelayed(MESSAGES);
+            controller.loopMainThreadForAtLeast(MESSAGES);
+        });
+    }
+
+    @Test
+    public void controller_loopMainThreadUntilIdle_busyIdlingResource() throws Exception {
+        busyResource = new HopCountingIdlingResource();
+        IdlingRegistry.getInstance().register(busyResource);
+        measure(() -> {
+            busyResource.startHops(BUSY_HOPS);
+            controller.loopMainThreadUntilIdle();
+        });
+    }
+
+    @Test
+    public void controller_loopMainThreadUntilIdle_manyIdleResources() throws Exception {
+        for (int i = 0; i < IDLE_RESOURCES; i++) {
+            idleResources.add(new HopCountingIdlingResource());
+        }
+        IdlingRegistry.getInstance().register(idleResources.toArray(new IdlingResource[0]));
+        measure(controller::loopMainThreadUntilIdle);
+    }
+
+    private void measure(MicroBench.Op op) throws Exception {
+        MicroBench.measure(getClass().getSimpleName(), testName.getMethodName(), op);
+    }
+
+    private void postImmediate(int count) {
+        for (int i = 0; i < count; i++) {
+            handler.post(NO_OP);
+        }
+    }
+
+    private void postDelayed(int count) {
+        for (int i = 1; i <= count; i++) {
+            handler.postDelayed(NO_OP, i);
+        }
+    }
+
+    /** Keeps looping until the queue is empty. */
+    private static final class UntilEmpty
+            implements PausedLooperInterrogator.InterrogationHandler<Void> {
+        @Override
+        public boolean queueEmpty() {
+            return false;
+        }
+
+        @Override
+        public boolean taskDueSoon() {
+            return true;
+        }
+
+        @Override
+        public boolean taskDueLong() {
+            return true;
+        }
+
+        @Override
+        public boolean barrierUp() {
+            return true;
+        }
+
+        @Override
+        public boolean beforeTaskDispatch() {
+            return true;
+        }
+
+        @Override
+        public void quitting() {}
+
+        @Override
+        public Void get() {
+            return null;
+        }
+    }
+
+    /**
+     * An idling resource that, like {@code DataBindingIdlingResource}, stays busy for a number of
+     * frames and re-checks itself on the main looper.
+     */
+    private final class HopCountingIdlingResource implements IdlingResource {
+        private final String name = "hops " + UUID.randomUUID();
+        private final Runnable hop = this::hop;
+        private ResourceCallback callback;
+        private int remainingHops;
+
+        void startHops(int hops) {
+            remainingHops = hops;
+            handler.postDelayed(hop, FRAME_MILLIS);
+        }
+
+        private void hop() {
+            if (--remainingHops > 0) {
+                handler.postDelayed(hop, FRAME_MILLIS);
+            } else if (callback != null) {
+                callback.onTransitionToIdle();
+            }
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isIdleNow() {
+            return remainingHops <= 0;
+        }
+
+        @Override
+        public void registerIdleTransitionCallback(ResourceCallback callback) {
+            this.callback = callback;
+        }
+    }
+}
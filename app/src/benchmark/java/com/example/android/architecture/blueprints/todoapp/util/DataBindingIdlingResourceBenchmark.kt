@@ -0,0 +1,119 @@
+package com.example.android.architecture.blueprints.todoapp.util
+
+import android.os.Bundle
+import android.os.Looper
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import androidx.appcompat.view.ContextThemeWrapper
+import androidx.fragment.app.Fragment
+import androidx.fragment.app.FragmentActivity
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.samples.apps.sunflower.R
+import com.google.samples.apps.sunflower.benchmark.MicroBench
+import com.google.samples.apps.sunflower.databinding.ListItemPlantBinding
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TestName
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.LooperMode
+
+/**
+ * Benchmarks [DataBindingIdlingResource.isIdleNow] on a fragment whose RecyclerView shows a list of
+ * [ROWS] plant list items, like the plant list of the app. Espresso calls it on every pass of its
+ * idling loop.
+ */
+@RunWith(AndroidJUnit4::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+class DataBindingIdlingResourceBenchmark {
+    @get:Rule
+    val testName = TestName()
+
+    private lateinit var rows: List<ListItemPlantBinding>
+    private lateinit var resource: DataBindingIdlingResource
+
+    @Before
+    fun setUp() {
+        val activity = Robolectric.buildActivity(FragmentActivity::class.java).setup().get()
+        val fragment = RowsFragment()
+        activity.supportFragmentManager.beginTransaction()
+            .add(android.R.id.content, fragment)
+            .commitNow()
+        // lays out the RecyclerView, which binds the visible rows.
+        shadowOf(Looper.getMainLooper()).idle()
+        rows = fragment.rows
+        check(rows.isNotEmpty())
+        resource = DataBindingIdlingResource().apply { this.activity = activity }
+    }
+
+    @After
+    fun tearDown() {
+        resource.release()
+    }
+
+    @Test
+    fun isIdleNow_idle() {
+        check(resource.isIdleNow)
+        measure { resource.isIdleNow }
+    }
+
+    @Test
+    fun isIdleNow_lastRowPending() {
+        rows.last().invalidateAll()
+        check(!resource.isIdleNow)
+        measure { resource.isIdleNow }
+        rows.last().executePendingBindings()
+        check(resource.isIdleNow)
+    }
+
+    private fun measure(op: () -> Unit) {
+        MicroBench.measure(javaClass.simpleName, testName.methodName, MicroBench.Op { op() })
+    }
+
+    class RowsFragment : Fragment() {
+        // the bindings of the rows that have been created, in the order of creation.
+        val rows = mutableListOf<ListItemPlantBinding>()
+
+        override fun onCreateView(
+            inflater: LayoutInflater,
+            container: ViewGroup?,
+            savedInstanceState: Bundle?
+        ): View {
+            val context = ContextThemeWrapper(requireContext(), R.style.Theme_Sunflower)
+            val themedInflater = inflater.cloneInContext(context)
+            return RecyclerView(context).apply {
+                layoutManager = LinearLayoutManager(context)
+                adapter = RowsAdapter(themedInflater, rows)
+            }
+        }
+    }
+
+    private class RowsAdapter(
+        private val inflater: LayoutInflater,
+        private val rows: MutableList<ListItemPlantBinding>
+    ) : RecyclerView.Adapter<RowsAdapter.ViewHolder>() {
+        override fun getItemCount() = ROWS
+
+        override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
+            val binding = ListItemPlantBinding.inflate(inflater, parent, false)
+            rows.add(binding)
+            return ViewHolder(binding)
+        }
+
+        override fun onBindViewHolder(holder: ViewHolder, position: Int) {
+            holder.binding.executePendingBindings()
+        }
+
+        class ViewHolder(val binding: ListItemPlantBinding) : RecyclerView.ViewHolder(binding.root)
+    }
+
+    companion object {
+        private const val ROWS = 500
+    }
+}
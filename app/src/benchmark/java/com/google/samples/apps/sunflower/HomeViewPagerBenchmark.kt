@@ -0,0 +1,66 @@
+package com.google.samples.apps.sunflower
+
+import android.os.Looper
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.viewpager2.widget.ViewPager2
+import com.google.samples.apps.sunflower.benchmark.MicroBench
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TestName
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.LooperMode
+
+/**
+ * Measures switching between the tabs of [HomeViewPagerFragment], including the frame that
+ * lays out the new page, with the page limit of the app and with the ViewPager2 default.
+ */
+@RunWith(AndroidJUnit4::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(application = InMemoryTestApplication::class)
+class HomeViewPagerBenchmark {
+    @get:Rule
+    val testName = TestName()
+
+    private lateinit var viewPager: ViewPager2
+
+    @Before
+    fun setUp() {
+        val activity = Robolectric.buildActivity(GardenActivity::class.java).setup().get()
+        viewPager = activity.findViewById(R.id.view_pager)
+        idle()
+    }
+
+    @After
+    fun tearDown() {
+        TestIsolation.reset()
+    }
+
+    @Test
+    fun switchTab_offscreenPageLimit() {
+        measure()
+    }
+
+    @Test
+    fun switchTab_defaultOffscreenPageLimit() {
+        viewPager.offscreenPageLimit = ViewPager2.OFFSCREEN_PAGE_LIMIT_DEFAULT
+        idle()
+        measure()
+    }
+
+    private fun measure() {
+        MicroBench.measure(javaClass.simpleName, testName.methodName, MicroBench.Op {
+            viewPager.setCurrentItem(1 - viewPager.currentItem, false)
+            idle()
+        })
+    }
+
+    // runs the frame callbacks, which lay out the new page.
+    private fun idle() {
+        shadowOf(Looper.getMainLooper()).idle()
+    }
+}
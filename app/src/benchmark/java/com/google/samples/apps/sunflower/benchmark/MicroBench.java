@@ -0,0 +1,273 @@
+package com.google.samples.apps.sunflower.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A small JMH-style harness for benchmarks that must run inside a Robolectric sandbox, where JMH
+ * itself cannot be used because the code under test needs the sandboxed Android framework.
+ *
+ * <p>Each scenario is warmed up and then run repeatedly for a fixed amount of wall time. The
+ * throughput, the number of bytes allocated by the benchmark thread and the garbage collections
+ * during the run are appended to {@code results.csv} in the directory given by the {@code
+ * benchmark.results} system property.
+ *
+ * <p>Every result is then compared with the line for the same scenario in the baseline file given
+ * by {@code benchmark.baseline}. A scenario whose throughput drops, or whose allocation grows, by
+ * more than {@code benchmark.tolerance} fails. When {@code benchmark.recordBaseline} is {@code
+ * true}, the baseline is replaced by the new result instead.
+ *
+ * <p>Benchmarks only run with {@code ./gradlew testDebugUnitTest -Pbenchmark}; see {@code
+ * app/build.gradle}.
+ */
+public final class MicroBench {
+
+    private static final String HEADER =
+            "benchmark,scenario,ops_per_sec,bytes_per_op,gc_count,gc_millis";
+
+    private static final long WARMUP_MILLIS = Long.getLong("benchmark.warmupMillis", 1_000L);
+    private static final long MEASURE_MILLIS = Long.getLong("benchmark.measureMillis", 3_000L);
+    // a result is a regression when it is worse than the baseline by this ratio.
+    private static final double TOLERANCE =
+            Double.parseDouble(System.getProperty("benchmark.tolerance", "0.2"));
+    // allocations below this many bytes per operation are noise, e.g. a boxed counter.
+    private static final double BYTES_PER_OP_SLACK = 16.0;
+
+    /** An operation measured by {@link #measure}. */
+    public interface Op {
+        void run() throws Exception;
+    }
+
+    /** The outcome of a single scenario. */
+    public static final class Result {
+        public final String benchmark;
+        public final String scenario;
+        public final double opsPerSecond;
+        public final double bytesPerOp;
+        public final long gcCount;
+        public final long gcMillis;
+
+        Result(
+                String benchmark,
+                String scenario,
+                double opsPerSecond,
+                double bytesPerOp,
+                long gcCount,
+                long gcMillis) {
+            this.benchmark = benchmark;
+            this.scenario = scenario;
+            this.opsPerSecond = opsPerSecond;
+            this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        String toCsv() {
+            return String.format(
+                    Locale.ROOT,
+                    "%s,%s,%.1f,%.1f,%d,%d",
+                    benchmark,
+                    scenario,
+                    opsPerSecond,
+                    bytesPerOp,
+                    gcCount,
+                    gcMillis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    Locale.ROOT,
+                    "%s.%s: %.1f ops/s, %.1f B/op, %.2f MB/s allocated, "
+                            + "%d collections, %d ms in GC",
+                    benchmark,
+                    scenario,
+                    opsPerSecond,
+                    bytesPerOp,
+                    opsPerSecond * bytesPerOp / (1024 * 1024),
+                    gcCount,
+                    gcMillis);
+        }
+    }
+
+    private MicroBench() {}
+
+    /**
+     * Measures {@code op} and reports the result.
+     *
+     * @param benchmark the name of the benchmark, usually the simple name of the test class.
+     * @param scenario the name of the scenario, usually the name of the test method.
+     */
+    public static Result measure(String benchmark, String scenario, Op op) throws Exception {
+        runFor(WARMUP_MILLIS, op);
+
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long bytesBefore = allocatedBytes();
+        long start = wallClockMillis();
+        long ops = runFor(MEASURE_MILLIS, op);
+        long elapsed = Math.max(1L, wallClockMillis() - start);
+        long bytes = allocatedBytes() - bytesBefore;
+
+        Result result =
+                new Result(
+                        benchmark,
+                        scenario,
+                        ops * 1000.0 / elapsed,
+                        (double) bytes / ops,
+                        gcCount() - gcCountBefore,
+                        gcMillis() - gcMillisBefore);
+        report(result);
+        return result;
+    }
+
+    private static long runFor(long millis, Op op) throws Exception {
+        long ops = 0;
+        long end = wallClockMillis() + millis;
+        do {
+            op.run();
+            ops++;
+        } while (wallClockMillis() < end);
+        return ops;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0L;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0L, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0L, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    // System.currentTimeMillis() and System.nanoTime() may be redirected to the Robolectric clock.
+    private static long wallClockMillis() {
+        return Clock.systemUTC().millis();
+    }
+
+    private static synchronized void report(Result result) throws IOException {
+        System.out.println(result);
+
+        String resultsDir = System.getProperty("benchmark.results");
+        if (resultsDir != null) {
+            File results = new File(resultsDir, "results.csv");
+            List<String> lines = new ArrayList<>();
+            if (!results.exists()) {
+                results.getParentFile().mkdirs();
+                lines.add(HEADER);
+            }
+            lines.add(result.toCsv());
+            Files.write(
+                    results.toPath(),
+                    lines,
+                    StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        }
+
+        String baselinePath = System.getProperty("benchmark.baseline");
+        if (baselinePath == null) {
+            return;
+        }
+        File baseline = new File(baselinePath);
+        if (Boolean.getBoolean("benchmark.recordBaseline")) {
+            record(baseline, result);
+        } else {
+            compare(baseline, result);
+        }
+    }
+
+    private static void compare(File baseline, Result result) throws IOException {
+        Result expected = find(readLines(baseline), result);
+        if (expected == null) {
+            System.out.println(
+                    "  no baseline for "
+                            + result.benchmark
+                            + "."
+                            + result.scenario
+                            + "; record one with -Pbenchmark=record");
+            return;
+        }
+        double throughput = result.opsPerSecond / expected.opsPerSecond - 1.0;
+        double allocation = result.bytesPerOp - expected.bytesPerOp;
+        boolean slower = throughput < -TOLERANCE;
+        boolean allocatesMore =
+                allocation > BYTES_PER_OP_SLACK && allocation > expected.bytesPerOp * TOLERANCE;
+        System.out.println(
+                String.format(
+                        Locale.ROOT,
+                        "  baseline: %.1f ops/s (%+.1f%%), %.1f B/op (%+.1f B/op)",
+                        expected.opsPerSecond,
+                        throughput * 100,
+                        expected.bytesPerOp,
+                        allocation));
+        if (slower || allocatesMore) {
+            throw new AssertionError(
+                    result + " regressed against the baseline " + expected.toCsv());
+        }
+    }
+
+    private static void record(File baseline, Result result) throws IOException {
+        List<String> lines = readLines(baseline);
+        String prefix = result.benchmark + "," + result.scenario + ",";
+        lines.removeIf(line -> line.startsWith(prefix));
+        lines.add(result.toCsv());
+        Collections.sort(lines.subList(1, lines.size()));
+        Files.write(baseline.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readLines(File baseline) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (baseline.exists()) {
+            lines.addAll(Files.readAllLines(baseline.toPath(), StandardCharsets.UTF_8));
+        }
+        if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+            lines.add(0, HEADER);
+        }
+        return lines;
+    }
+
+    private static Result find(List<String> lines, Result result) {
+        String prefix = result.benchmark + "," + result.scenario + ",";
+        for (String line : lines) {
+            if (line.startsWith(prefix)) {
+                String[] columns = line.split(",");
+                return new Result(
+                        result.benchmark,
+                        result.scenario,
+                        Double.parseDouble(columns[2]),
+                        Double.parseDouble(columns[3]),
+                        Long.parseLong(columns[4]),
+                        Long.parseLong(columns[5]));
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.google.samples.apps.sunflower.data
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.samples.apps.sunflower.TestApplication
+import com.google.samples.apps.sunflower.benchmark.MicroBench
+import com.google.samples.apps.sunflower.utilities.DATABASE_NAME
+import com.google.samples.apps.sunflower.utilities.SEED_DATABASE_ASSET
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TestName
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.LooperMode
+
+/**
+ * Measures how long it takes until a newly created [AppDatabase] contains all plants,
+ * which every test that starts from an empty data directory has to wait for.
+ */
+@RunWith(AndroidJUnit4::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(application = TestApplication::class)
+class AppDatabaseBenchmark {
+    @get:Rule
+    val testName = TestName()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    @After
+    fun tearDown() {
+        AppDatabase.seedDatabaseAsset = SEED_DATABASE_ASSET
+        AppDatabase.inMemory = false
+    }
+
+    @Test
+    fun coldStart_seedDatabaseAsset() {
+        measureColdStart()
+    }
+
+    @Test
+    fun coldStart_seedDatabaseWorker() {
+        AppDatabase.seedDatabaseAsset = null
+        measureColdStart()
+    }
+
+    @Test
+    fun coldStart_inMemory() {
+        AppDatabase.inMemory = true
+        measureColdStart()
+    }
+
+    private fun measureColdStart() {
+        MicroBench.measure(javaClass.simpleName, testName.methodName, MicroBench.Op {
+            deleteDatabase()
+            // SeedDatabaseWorker inserts all plants in a single transaction on a background thread.
+            while (countPlants() == 0) {
+                Thread.yield()
+            }
+        })
+        deleteDatabase()
+    }
+
+    private fun countPlants() =
+        // the open helper does not check for the main thread like RoomDatabase.query() does.
+        AppDatabase.getInstance(context).openHelper.readableDatabase
+            .query("SELECT COUNT(*) FROM plants").use { cursor ->
+                cursor.moveToFirst()
+                cursor.getInt(0)
+            }
+
+    private fun deleteDatabase() {
+        AppDatabase.clear()
+        context.deleteDatabase(DATABASE_NAME)
+    }
+}
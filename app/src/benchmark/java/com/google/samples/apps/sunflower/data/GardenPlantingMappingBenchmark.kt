@@ -0,0 +1,57 @@
+package com.google.samples.apps.sunflower.data
+
+import com.google.samples.apps.sunflower.benchmark.MicroBench
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TestName
+
+/**
+ * Compares the work Room's generated code does per [GardenPlanting] row when mapping
+ * [ROWS] rows: converting both date columns to [java.util.Calendar] with [Converters],
+ * as the entity used to, or keeping them as epoch milliseconds.
+ */
+class GardenPlantingMappingBenchmark {
+    @get:Rule
+    val testName = TestName()
+
+    private val dates = LongArray(ROWS) { 1_500_000_000_000L + it * 60_000L }
+    private val converters = Converters()
+
+    @Test
+    fun calendarColumns() {
+        measure {
+            for (date in dates) {
+                sink(GardenPlanting(
+                    PLANT_ID,
+                    converters.datestampToCalendar(date),
+                    converters.datestampToCalendar(date)
+                ))
+            }
+        }
+    }
+
+    @Test
+    fun epochMillisColumns() {
+        measure {
+            for (date in dates) {
+                sink(GardenPlanting(PLANT_ID, date, date))
+            }
+        }
+    }
+
+    private var sink: Any? = null
+
+    // keeps the JIT from eliminating the mapped rows.
+    private fun sink(row: GardenPlanting) {
+        sink = row
+    }
+
+    private fun measure(op: () -> Unit) {
+        MicroBench.measure(javaClass.simpleName, testName.methodName, MicroBench.Op { op() })
+    }
+
+    companion object {
+        private const val ROWS = 100_000
+        private const val PLANT_ID = "malus-pumila"
+    }
+}
@@ -0,0 +1,98 @@
+package com.google.samples.apps.sunflower.data
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.samples.apps.sunflower.benchmark.MicroBench
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TestName
+import org.junit.runner.RunWith
+import org.robolectric.annotation.LooperMode
+import java.util.Random
+
+/**
+ * Benchmarks the grow zone filter of the plant list on a catalogue of [PLANTS] plants,
+ * with and without the `(growZoneNumber, name)` index and the [PlantSummary] projection.
+ */
+@RunWith(AndroidJUnit4::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+class PlantQueryBenchmark {
+    @get:Rule
+    val testName = TestName()
+
+    private lateinit var database: AppDatabase
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java)
+                .allowMainThreadQueries()
+                .build()
+        val db = database.openHelper.writableDatabase
+        val insert = db.compileStatement("INSERT INTO plants " +
+                "(id, name, description, growZoneNumber, wateringInterval, imageUrl) " +
+                "VALUES (?, ?, ?, ?, ?, ?)")
+        val random = Random(42)
+        val description = "<p>" + "A plant with a long description. ".repeat(40) + "</p>"
+        db.beginTransaction()
+        try {
+            repeat(PLANTS) {
+                insert.bindString(1, "plant-$it")
+                insert.bindString(2, "Plant ${random.nextInt(PLANTS)}")
+                insert.bindString(3, description)
+                insert.bindLong(4, 1L + random.nextInt(GROW_ZONES))
+                insert.bindLong(5, 7)
+                insert.bindString(6, "https://example.com/plant-$it.jpg")
+                insert.executeInsert()
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun growZone_fullPlant_withoutIndex() {
+        database.openHelper.writableDatabase.execSQL("DROP INDEX index_plants_growZoneNumber_name")
+        measure("SELECT * FROM plants WHERE growZoneNumber = ? ORDER BY name")
+    }
+
+    @Test
+    fun growZone_fullPlant_withIndex() {
+        measure("SELECT * FROM plants WHERE growZoneNumber = ? ORDER BY name")
+    }
+
+    @Test
+    fun growZone_summary_withIndex() {
+        measure("SELECT id, name, imageUrl FROM plants WHERE growZoneNumber = ? ORDER BY name")
+    }
+
+    // reads every column of every row, as the paged list does while it is scrolled through.
+    private fun measure(sql: String) {
+        val args = arrayOf<Any>(GROW_ZONE)
+        MicroBench.measure(javaClass.simpleName, testName.methodName, MicroBench.Op {
+            database.query(sql, args).use { cursor ->
+                while (cursor.moveToNext()) {
+                    for (i in 0 until cursor.columnCount) {
+                        cursor.getString(i)
+                    }
+                }
+            }
+        })
+    }
+
+    companion object {
+        private const val PLANTS = 50_000
+        private const val GROW_ZONES = 13
+        private const val GROW_ZONE = 9
+    }
+}
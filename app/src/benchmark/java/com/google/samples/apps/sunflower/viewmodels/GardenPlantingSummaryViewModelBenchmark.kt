@@ -0,0 +1,62 @@
+package com.google.samples.apps.sunflower.viewmodels
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.samples.apps.sunflower.benchmark.MicroBench
+import com.google.samples.apps.sunflower.data.GardenPlantingSummary
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TestName
+import org.junit.runner.RunWith
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures creating the view models of a garden of [PLANTINGS] plantings, which
+ * [com.google.samples.apps.sunflower.adapters.GardenPlantingAdapter] does for every row
+ * that scrolls into view, with and without cached date labels.
+ */
+@RunWith(AndroidJUnit4::class)
+class GardenPlantingSummaryViewModelBenchmark {
+    @get:Rule
+    val testName = TestName()
+
+    private val summaries = List(PLANTINGS) {
+        // plantings spread over two months, watered on a later day.
+        val planted = START_MILLIS + TimeUnit.HOURS.toMillis(it.toLong())
+        GardenPlantingSummary(it.toLong(), "plant-$it", "Plant $it", "", 7,
+                planted, planted + TimeUnit.DAYS.toMillis(3))
+    }
+
+    @Test
+    fun bind_simpleDateFormat() {
+        val dateFormat = SimpleDateFormat("MMM d, yyyy", Locale.US)
+        var sink: Any? = null
+        measure {
+            summaries.forEach {
+                sink = dateFormat.format(Date(it.lastWateringDateMillis))
+                sink = dateFormat.format(Date(it.plantDateMillis))
+            }
+        }
+        checkNotNull(sink)
+    }
+
+    @Test
+    fun bind_dateLabelCache() {
+        var sink: Any? = null
+        measure {
+            summaries.forEach { sink = GardenPlantingSummaryViewModel(it) }
+        }
+        checkNotNull(sink)
+    }
+
+    private fun measure(op: () -> Unit) {
+        MicroBench.measure(javaClass.simpleName, testName.methodName, MicroBench.Op { op() })
+    }
+
+    companion object {
+        private const val PLANTINGS = 1_000
+        private const val START_MILLIS = 1_577_836_800_000L // 2020-01-01
+    }
+}
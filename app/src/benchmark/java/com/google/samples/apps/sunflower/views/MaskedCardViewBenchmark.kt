@@ -0,0 +1,103 @@
+package com.google.samples.apps.sunflower.views
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.FrameLayout
+import androidx.appcompat.view.ContextThemeWrapper
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.samples.apps.sunflower.R
+import com.google.samples.apps.sunflower.benchmark.MicroBench
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TestName
+import org.junit.runner.RunWith
+import org.robolectric.annotation.LooperMode
+
+/**
+ * Measures drawing and resizing a grid of [MaskedCardView]s with the asymmetric corners of the
+ * app, as the plant list and the garden show them.
+ *
+ * Robolectric draws to a software canvas, so this measures the work done on the main thread to
+ * calculate the clip path and record the draw calls. How long the renderer takes to clip, and
+ * how clipping to the outline compares with clipping to a path, can only be measured on a device.
+ */
+@RunWith(AndroidJUnit4::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+class MaskedCardViewBenchmark {
+    @get:Rule
+    val testName = TestName()
+
+    private lateinit var context: Context
+    private lateinit var canvas: Canvas
+
+    @Before
+    fun setUp() {
+        context = ContextThemeWrapper(
+            ApplicationProvider.getApplicationContext<Context>(),
+            R.style.Theme_Sunflower
+        )
+        canvas = Canvas(Bitmap.createBitmap(CARD_WIDTH, CARD_HEIGHT, Bitmap.Config.ARGB_8888))
+    }
+
+    @Test
+    fun draw_asymmetricCorners() {
+        measureDraw(grid { parent -> inflateListItem(parent, R.layout.list_item_plant) })
+    }
+
+    @Test
+    fun draw_gardenPlantings() {
+        measureDraw(grid { parent -> inflateListItem(parent, R.layout.list_item_garden_planting) })
+    }
+
+    @Test
+    fun resize_asymmetricCorners() {
+        val cards = grid { parent -> inflateListItem(parent, R.layout.list_item_plant) }
+        var width = CARD_WIDTH
+        MicroBench.measure(javaClass.simpleName, testName.methodName, MicroBench.Op {
+            width = if (width == CARD_WIDTH) CARD_WIDTH / 2 else CARD_WIDTH
+            for (card in cards) {
+                layout(card, width)
+                card.draw(canvas)
+            }
+        })
+    }
+
+    private fun measureDraw(cards: List<View>) {
+        MicroBench.measure(javaClass.simpleName, testName.methodName, MicroBench.Op {
+            for (card in cards) {
+                card.draw(canvas)
+            }
+        })
+    }
+
+    private fun grid(create: (ViewGroup) -> View): List<View> {
+        val parent = FrameLayout(context)
+        return List(COLUMNS * ROWS) {
+            create(parent).also { layout(it, CARD_WIDTH) }
+        }
+    }
+
+    private fun inflateListItem(parent: ViewGroup, layout: Int) =
+        LayoutInflater.from(context).inflate(layout, parent, false)
+
+    private fun layout(card: View, width: Int) {
+        card.measure(
+            View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(CARD_HEIGHT, View.MeasureSpec.EXACTLY)
+        )
+        card.layout(0, 0, width, CARD_HEIGHT)
+    }
+
+    companion object {
+        private const val COLUMNS = 2
+        private const val ROWS = 12
+        private const val CARD_WIDTH = 540
+        private const val CARD_HEIGHT = 720
+    }
+}
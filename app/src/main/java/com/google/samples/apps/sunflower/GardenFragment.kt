@@ -26,6 +26,7 @@ import androidx.lifecycle.observe
 import androidx.viewpager2.widget.ViewPager2
 import com.google.samples.apps.sunflower.adapters.GardenPlantingAdapter
 import com.google.samples.apps.sunflower.adapters.PLANT_LIST_PAGE_INDEX
+import com.google.samples.apps.sunflower.adapters.preinflateViewHolders
 import com.google.samples.apps.sunflower.databinding.FragmentGardenBinding
 import com.google.samples.apps.sunflower.utilities.InjectorUtils
 import com.google.samples.apps.sunflower.viewmodels.GardenPlantingListViewModel
@@ -45,7 +46,15 @@ class GardenFragment : Fragment() {
     ): View? {
         binding = FragmentGardenBinding.inflate(inflater, container, false)
         val adapter = GardenPlantingAdapter()
+        (parentFragment as? HomeViewPagerFragment)?.let {
+            binding.gardenList.setRecycledViewPool(it.recycledViewPool)
+        }
         binding.gardenList.adapter = adapter
+        binding.gardenList.preinflateViewHolders(
+            viewLifecycleOwner,
+            R.layout.list_item_garden_planting,
+            resources.getInteger(R.integer.preinflated_view_holders)
+        )
 
         binding.addPlant.setOnClickListener {
             navigateToPlantListPage()
@@ -56,7 +65,7 @@ class GardenFragment : Fragment() {
     }
 
     private fun subscribeUi(adapter: GardenPlantingAdapter, binding: FragmentGardenBinding) {
-        viewModel.plantAndGardenPlantings.observe(viewLifecycleOwner) { result ->
+        viewModel.gardenPlantingSummaries.observe(viewLifecycleOwner) { result ->
             binding.hasPlantings = !result.isNullOrEmpty()
             adapter.submitList(result)
         }
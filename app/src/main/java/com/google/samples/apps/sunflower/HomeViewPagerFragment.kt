@@ -22,6 +22,7 @@ import android.view.View
 import android.view.ViewGroup
 import androidx.appcompat.app.AppCompatActivity
 import androidx.fragment.app.Fragment
+import androidx.recyclerview.widget.RecyclerView
 import com.google.android.material.tabs.TabLayoutMediator
 import com.google.samples.apps.sunflower.adapters.MY_GARDEN_PAGE_INDEX
 import com.google.samples.apps.sunflower.adapters.PLANT_LIST_PAGE_INDEX
@@ -30,6 +31,13 @@ import com.google.samples.apps.sunflower.databinding.FragmentViewPagerBinding
 
 class HomeViewPagerFragment : Fragment() {
 
+    /**
+     * The view pool shared by the lists of all pages. Their item views have different view types,
+     * so they are not exchanged, but a single pool keeps them all across page changes. It is
+     * emptied when the view of this fragment is destroyed, together with the pages' lists.
+     */
+    val recycledViewPool = RecyclerView.RecycledViewPool()
+
     override fun onCreateView(
         inflater: LayoutInflater,
         container: ViewGroup?,
@@ -40,6 +48,8 @@ class HomeViewPagerFragment : Fragment() {
         val viewPager = binding.viewPager
 
         viewPager.adapter = SunflowerPagerAdapter(this)
+        // keep the other page and its list alive, so switching tabs does not inflate any views
+        viewPager.offscreenPageLimit = 1
 
         // Set the icon and text for each tab
         TabLayoutMediator(tabLayout, viewPager) { tab, position ->
@@ -52,6 +62,12 @@ class HomeViewPagerFragment : Fragment() {
         return binding.root
     }
 
+    override fun onDestroyView() {
+        super.onDestroyView()
+        // the pages' views are destroyed before this one, so no list puts views back anymore.
+        recycledViewPool.clear()
+    }
+
     private fun getTabIcon(position: Int): Int {
         return when (position) {
             MY_GARDEN_PAGE_INDEX -> R.drawable.garden_tab_selector
@@ -26,8 +26,13 @@ import android.view.ViewGroup
 import androidx.fragment.app.Fragment
 import androidx.fragment.app.viewModels
 import androidx.lifecycle.observe
-import com.google.samples.apps.sunflower.adapters.PlantAdapter
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader
+import com.bumptech.glide.util.FixedPreloadSizeProvider
+import com.google.samples.apps.sunflower.adapters.PagedPlantAdapter
+import com.google.samples.apps.sunflower.adapters.PlantImagePreloadModelProvider
+import com.google.samples.apps.sunflower.adapters.preinflateViewHolders
 import com.google.samples.apps.sunflower.databinding.FragmentPlantListBinding
+import com.google.samples.apps.sunflower.images.ImageSize
 import com.google.samples.apps.sunflower.utilities.InjectorUtils
 import com.google.samples.apps.sunflower.viewmodels.PlantListViewModel
 
@@ -45,8 +50,23 @@ class PlantListFragment : Fragment() {
         val binding = FragmentPlantListBinding.inflate(inflater, container, false)
         context ?: return binding.root
 
-        val adapter = PlantAdapter()
+        val adapter = PagedPlantAdapter()
+        (parentFragment as? HomeViewPagerFragment)?.let {
+            binding.plantList.setRecycledViewPool(it.recycledViewPool)
+        }
         binding.plantList.adapter = adapter
+        binding.plantList.preinflateViewHolders(
+            viewLifecycleOwner,
+            R.layout.list_item_plant,
+            resources.getInteger(R.integer.preinflated_view_holders)
+        )
+        val (imageWidth, imageHeight) = ImageSize.LIST.requestSize(requireContext())
+        binding.plantList.addOnScrollListener(RecyclerViewPreloader(
+            this,
+            PlantImagePreloadModelProvider(this, adapter),
+            FixedPreloadSizeProvider(imageWidth, imageHeight),
+            resources.getInteger(R.integer.preloaded_images)
+        ))
         subscribeUi(adapter)
 
         setHasOptionsMenu(true)
@@ -67,7 +87,7 @@ class PlantListFragment : Fragment() {
         }
     }
 
-    private fun subscribeUi(adapter: PlantAdapter) {
+    private fun subscribeUi(adapter: PagedPlantAdapter) {
         viewModel.plants.observe(viewLifecycleOwner) { plants ->
             adapter.submitList(plants)
         }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.adapters
+
+import androidx.annotation.VisibleForTesting
+import androidx.recyclerview.widget.AsyncDifferConfig
+import androidx.recyclerview.widget.DiffUtil
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+/**
+ * The background executor that all list adapters of the app compute their diffs on,
+ * instead of a pool per adapter class.
+ */
+object DiffExecutor : Executor {
+
+    @VisibleForTesting
+    @Volatile
+    var delegate: Executor = Executors.newSingleThreadExecutor { runnable ->
+        Thread(runnable, "list-diff").apply { isDaemon = true }
+    }
+
+    override fun execute(command: Runnable) = delegate.execute(command)
+}
+
+internal fun <T> asyncDifferConfig(callback: DiffUtil.ItemCallback<T>): AsyncDifferConfig<T> =
+        AsyncDifferConfig.Builder(callback)
+                .setBackgroundThreadExecutor(DiffExecutor)
+                .build()
@@ -26,15 +26,23 @@ import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
 import com.google.samples.apps.sunflower.R
 import com.google.samples.apps.sunflower.HomeViewPagerFragmentDirections
-import com.google.samples.apps.sunflower.data.PlantAndGardenPlantings
+import com.google.samples.apps.sunflower.data.GardenPlantingSummary
 import com.google.samples.apps.sunflower.databinding.ListItemGardenPlantingBinding
-import com.google.samples.apps.sunflower.viewmodels.PlantAndGardenPlantingsViewModel
+import com.google.samples.apps.sunflower.viewmodels.GardenPlantingSummaryViewModel
 
 class GardenPlantingAdapter :
-    ListAdapter<PlantAndGardenPlantings, GardenPlantingAdapter.ViewHolder>(
-        GardenPlantDiffCallback()
+    ListAdapter<GardenPlantingSummary, GardenPlantingAdapter.ViewHolder>(
+        asyncDifferConfig(GardenPlantDiffCallback())
     ) {
 
+    init {
+        setHasStableIds(true)
+    }
+
+    override fun getItemId(position: Int): Long = getItem(position).gardenPlantingId
+
+    override fun getItemViewType(position: Int) = R.layout.list_item_garden_planting
+
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
         return ViewHolder(
             DataBindingUtil.inflate(
@@ -48,6 +56,14 @@ class GardenPlantingAdapter :
         holder.bind(getItem(position))
     }
 
+    override fun onBindViewHolder(holder: ViewHolder, position: Int, payloads: List<Any>) {
+        if (payloads.isNotEmpty() && payloads.all { it == DATES_CHANGED }) {
+            holder.bindDates(getItem(position))
+        } else {
+            super.onBindViewHolder(holder, position, payloads)
+        }
+    }
+
     class ViewHolder(
         private val binding: ListItemGardenPlantingBinding
     ) : RecyclerView.ViewHolder(binding.root) {
@@ -65,28 +81,55 @@ class GardenPlantingAdapter :
             view.findNavController().navigate(direction)
         }
 
-        fun bind(plantings: PlantAndGardenPlantings) {
+        fun bind(summary: GardenPlantingSummary) {
             with(binding) {
-                viewModel = PlantAndGardenPlantingsViewModel(plantings)
+                viewModel = GardenPlantingSummaryViewModel(summary)
                 executePendingBindings()
             }
         }
+
+        /**
+         * Only updates the dates, leaving the image and the other texts as they are.
+         */
+        fun bindDates(summary: GardenPlantingSummary) {
+            val viewModel = binding.viewModel
+            if (viewModel == null) {
+                bind(summary)
+                return
+            }
+            viewModel.updateDates(summary)
+            binding.executePendingBindings()
+        }
     }
 }
 
-private class GardenPlantDiffCallback : DiffUtil.ItemCallback<PlantAndGardenPlantings>() {
+private class GardenPlantDiffCallback : DiffUtil.ItemCallback<GardenPlantingSummary>() {
 
     override fun areItemsTheSame(
-        oldItem: PlantAndGardenPlantings,
-        newItem: PlantAndGardenPlantings
+        oldItem: GardenPlantingSummary,
+        newItem: GardenPlantingSummary
     ): Boolean {
-        return oldItem.plant.plantId == newItem.plant.plantId
+        return oldItem.gardenPlantingId == newItem.gardenPlantingId
     }
 
     override fun areContentsTheSame(
-        oldItem: PlantAndGardenPlantings,
-        newItem: PlantAndGardenPlantings
+        oldItem: GardenPlantingSummary,
+        newItem: GardenPlantingSummary
     ): Boolean {
-        return oldItem.plant == newItem.plant
+        return oldItem == newItem
     }
-}
\ No newline at end of file
+
+    override fun getChangePayload(
+        oldItem: GardenPlantingSummary,
+        newItem: GardenPlantingSummary
+    ): Any? {
+        val datesOnly = oldItem.copy(
+            plantDateMillis = newItem.plantDateMillis,
+            lastWateringDateMillis = newItem.lastWateringDateMillis
+        ) == newItem
+        return if (datesOnly) DATES_CHANGED else null
+    }
+}
+
+// the payload of a change that only affects the dates of a row.
+private val DATES_CHANGED = Any()
\ No newline at end of file
@@ -20,27 +20,34 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import androidx.navigation.findNavController
+import androidx.paging.PagedListAdapter
 import androidx.recyclerview.widget.DiffUtil
-import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
 import com.google.samples.apps.sunflower.HomeViewPagerFragmentDirections
 import com.google.samples.apps.sunflower.PlantListFragment
-import com.google.samples.apps.sunflower.data.Plant
+import com.google.samples.apps.sunflower.R
+import com.google.samples.apps.sunflower.data.PlantSummary
 import com.google.samples.apps.sunflower.databinding.ListItemPlantBinding
 
 /**
  * Adapter for the [RecyclerView] in [PlantListFragment].
+ *
+ * Only the loaded pages are diffed, on a background thread, when a new list is submitted.
  */
-class PlantAdapter : ListAdapter<Plant, RecyclerView.ViewHolder>(PlantDiffCallback()) {
+class PagedPlantAdapter : PagedListAdapter<PlantSummary, PagedPlantAdapter.PlantViewHolder>(
+    asyncDifferConfig(PlantDiffCallback())
+) {
 
-    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): RecyclerView.ViewHolder {
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): PlantViewHolder {
         return PlantViewHolder(ListItemPlantBinding.inflate(
                 LayoutInflater.from(parent.context), parent, false))
     }
 
-    override fun onBindViewHolder(holder: RecyclerView.ViewHolder, position: Int) {
-        val plant = getItem(position)
-        (holder as PlantViewHolder).bind(plant)
+    override fun getItemViewType(position: Int) = R.layout.list_item_plant
+
+    override fun onBindViewHolder(holder: PlantViewHolder, position: Int) {
+        // placeholders are disabled, so every item is loaded.
+        getItem(position)?.let { holder.bind(it) }
     }
 
     class PlantViewHolder(
@@ -55,7 +62,7 @@ class PlantAdapter : ListAdapter<Plant, RecyclerView.ViewHolder>(PlantDiffCallba
         }
 
         private fun navigateToPlant(
-            plant: Plant,
+            plant: PlantSummary,
             view: View
         ) {
             val direction =
@@ -65,7 +72,7 @@ class PlantAdapter : ListAdapter<Plant, RecyclerView.ViewHolder>(PlantDiffCallba
             view.findNavController().navigate(direction)
         }
 
-        fun bind(item: Plant) {
+        fun bind(item: PlantSummary) {
             binding.apply {
                 plant = item
                 executePendingBindings()
@@ -74,13 +81,13 @@ class PlantAdapter : ListAdapter<Plant, RecyclerView.ViewHolder>(PlantDiffCallba
     }
 }
 
-private class PlantDiffCallback : DiffUtil.ItemCallback<Plant>() {
+private class PlantDiffCallback : DiffUtil.ItemCallback<PlantSummary>() {
 
-    override fun areItemsTheSame(oldItem: Plant, newItem: Plant): Boolean {
+    override fun areItemsTheSame(oldItem: PlantSummary, newItem: PlantSummary): Boolean {
         return oldItem.plantId == newItem.plantId
     }
 
-    override fun areContentsTheSame(oldItem: Plant, newItem: Plant): Boolean {
+    override fun areContentsTheSame(oldItem: PlantSummary, newItem: PlantSummary): Boolean {
         return oldItem == newItem
     }
-}
\ No newline at end of file
+}
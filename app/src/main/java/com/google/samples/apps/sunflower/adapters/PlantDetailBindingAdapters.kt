@@ -16,23 +16,24 @@
 
 package com.google.samples.apps.sunflower.adapters
 
+import android.text.Spanned
 import android.text.method.LinkMovementMethod
 import android.widget.ImageView
 import android.widget.TextView
-import androidx.core.text.HtmlCompat
-import androidx.core.text.HtmlCompat.FROM_HTML_MODE_COMPACT
 import androidx.databinding.BindingAdapter
 import com.bumptech.glide.Glide
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions
 import com.google.android.material.floatingactionbutton.FloatingActionButton
 import com.google.samples.apps.sunflower.R
+import com.google.samples.apps.sunflower.images.ImageSize
 
-@BindingAdapter("imageFromUrl")
-fun bindImageFromUrl(view: ImageView, imageUrl: String?) {
+@BindingAdapter(value = ["imageFromUrl", "imageSize"], requireAll = false)
+fun bindImageFromUrl(view: ImageView, imageUrl: String?, imageSize: ImageSize?) {
     if (!imageUrl.isNullOrEmpty()) {
-        Glide.with(view.context)
-                .load(imageUrl)
-                .transition(DrawableTransitionOptions.withCrossFade())
+        val requests = Glide.with(view.context)
+        val request = imageSize?.request(requests, view.context, imageUrl)
+                ?: requests.load(imageUrl)
+        request.transition(DrawableTransitionOptions.withCrossFade())
                 .into(view)
     }
 }
@@ -47,9 +48,9 @@ fun bindIsGone(view: FloatingActionButton, isGone: Boolean?) {
 }
 
 @BindingAdapter("renderHtml")
-fun bindRenderHtml(view: TextView, description: String?) {
+fun bindRenderHtml(view: TextView, description: Spanned?) {
     if (description != null) {
-        view.text = HtmlCompat.fromHtml(description, FROM_HTML_MODE_COMPACT)
+        view.text = description
         view.movementMethod = LinkMovementMethod.getInstance()
     } else {
         view.text = ""
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.adapters
+
+import android.graphics.drawable.Drawable
+import androidx.fragment.app.Fragment
+import com.bumptech.glide.Glide
+import com.bumptech.glide.ListPreloader
+import com.bumptech.glide.RequestBuilder
+import com.google.samples.apps.sunflower.data.PlantSummary
+import com.google.samples.apps.sunflower.images.ImageSize
+
+/**
+ * Tells a [com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader] which images the
+ * items of a [PagedPlantAdapter] show. The requests match those of the items' image views,
+ * so the preloaded images are found in the cache when the items are bound.
+ */
+class PlantImagePreloadModelProvider(
+    private val fragment: Fragment,
+    private val adapter: PagedPlantAdapter
+) : ListPreloader.PreloadModelProvider<PlantSummary> {
+
+    override fun getPreloadItems(position: Int): List<PlantSummary> {
+        val plants = adapter.currentList ?: return emptyList()
+        return if (position < plants.size) listOfNotNull(plants[position]) else emptyList()
+    }
+
+    override fun getPreloadRequestBuilder(item: PlantSummary): RequestBuilder<Drawable>? {
+        if (item.imageUrl.isEmpty()) {
+            return null
+        }
+        return ImageSize.LIST.request(Glide.with(fragment), fragment.requireContext(), item.imageUrl)
+    }
+}
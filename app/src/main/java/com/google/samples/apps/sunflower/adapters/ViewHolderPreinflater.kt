@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.adapters
+
+import android.os.Looper
+import android.os.MessageQueue
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleOwner
+import androidx.recyclerview.widget.RecyclerView
+
+/**
+ * Creates [count] view holders of [viewType] with the adapter of this [RecyclerView] and puts
+ * them into its view pool, one at a time whenever the main thread is idle. The list then finds
+ * its first items' views ready instead of inflating them all in the frame it is shown in.
+ *
+ * Pre-inflation stops when [lifecycleOwner], the owner of the list's view, is destroyed, so
+ * nothing is inflated for a list that is gone.
+ */
+fun RecyclerView.preinflateViewHolders(lifecycleOwner: LifecycleOwner, viewType: Int, count: Int) {
+    val pool = recycledViewPool
+    if (count > DEFAULT_MAX_SCRAP) {
+        pool.setMaxRecycledViews(viewType, count)
+    }
+    val queue = Looper.myQueue()
+    val idleHandler = object : MessageQueue.IdleHandler {
+        private var remaining = count
+
+        override fun queueIdle(): Boolean {
+            val adapter = adapter ?: return false
+            if (remaining-- <= 0) {
+                return false
+            }
+            pool.putRecycledView(adapter.createViewHolder(this@preinflateViewHolders, viewType))
+            return remaining > 0
+        }
+    }
+    queue.addIdleHandler(idleHandler)
+    lifecycleOwner.lifecycle.addObserver(object : LifecycleEventObserver {
+        override fun onStateChanged(source: LifecycleOwner, event: Lifecycle.Event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                queue.removeIdleHandler(idleHandler)
+                source.lifecycle.removeObserver(this)
+            }
+        }
+    })
+}
+
+// RecyclerView.RecycledViewPool.DEFAULT_MAX_SCRAP is private.
+private const val DEFAULT_MAX_SCRAP = 5
@@ -22,16 +22,21 @@ import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
+import androidx.room.migration.Migration
 import androidx.sqlite.db.SupportSQLiteDatabase
 import androidx.work.OneTimeWorkRequestBuilder
 import androidx.work.WorkManager
 import com.google.samples.apps.sunflower.utilities.DATABASE_NAME
+import com.google.samples.apps.sunflower.utilities.SEED_DATABASE_ASSET
 import com.google.samples.apps.sunflower.workers.SeedDatabaseWorker
+import com.google.samples.apps.sunflower.workers.importPlants
+import kotlinx.coroutines.runBlocking
+import java.util.concurrent.Executor
 
 /**
  * The Room database for this app
  */
-@Database(entities = [GardenPlanting::class, Plant::class], version = 1, exportSchema = false)
+@Database(entities = [GardenPlanting::class, Plant::class], version = 2, exportSchema = false)
 @TypeConverters(Converters::class)
 abstract class AppDatabase : RoomDatabase() {
     abstract fun gardenPlantingDao(): GardenPlantingDao
@@ -48,23 +53,76 @@ abstract class AppDatabase : RoomDatabase() {
             }
         }
 
+        // Tests may keep the database in memory, which spares them creating and deleting the
+        // database file. It is seeded from plants.json when it is built, on the calling thread,
+        // and runs its queries on the calling thread, too.
+        @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+        var inMemory = false
+
+        // The asset that the database is copied from when it is created.
+        // Tests set it to null to measure seeding the database with SeedDatabaseWorker.
+        @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+        var seedDatabaseAsset: String? = SEED_DATABASE_ASSET
+
         // Create and pre-populate the database. See this article for more details:
         // https://medium.com/google-developers/7-pro-tips-for-room-fbadea4bfbd1#4785
         private fun buildDatabase(context: Context): AppDatabase {
-            return Room.databaseBuilder(context, AppDatabase::class.java, DATABASE_NAME)
-                    .addCallback(object : RoomDatabase.Callback() {
-                        override fun onCreate(db: SupportSQLiteDatabase) {
-                            super.onCreate(db)
-                            val request = OneTimeWorkRequestBuilder<SeedDatabaseWorker>().build()
-                            WorkManager.getInstance(context).enqueue(request)
-                        }
-                    })
+            if (inMemory) {
+                return buildInMemoryDatabase(context)
+            }
+            val builder = Room.databaseBuilder(context, AppDatabase::class.java, DATABASE_NAME)
+                    .addMigrations(MIGRATION_1_2)
+            val asset = seedDatabaseAsset
+            if (asset != null && context.hasAsset(asset)) {
+                // copying the prebuilt database skips parsing plants.json and inserting every plant.
+                builder.createFromAsset(asset)
+            } else {
+                builder.addCallback(object : RoomDatabase.Callback() {
+                    override fun onCreate(db: SupportSQLiteDatabase) {
+                        super.onCreate(db)
+                        val request = OneTimeWorkRequestBuilder<SeedDatabaseWorker>().build()
+                        WorkManager.getInstance(context).enqueue(request)
+                    }
+                })
+            }
+            return builder.build()
+        }
+
+        private fun buildInMemoryDatabase(context: Context): AppDatabase {
+            val directExecutor = Executor { it.run() }
+            val database = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java)
+                    .setQueryExecutor(directExecutor)
+                    .setTransactionExecutor(directExecutor)
+                    .allowMainThreadQueries()
                     .build()
+            // Room cannot copy an asset into an in-memory database, so the plants are imported
+            // the way SeedDatabaseWorker imports them, just without WorkManager.
+            runBlocking {
+                importPlants(context, database.plantDao(), SeedDatabaseWorker.BATCH_SIZE)
+            }
+            return database
+        }
+
+        private fun Context.hasAsset(path: String): Boolean {
+            val dir = path.substringBeforeLast('/', "")
+            return assets.list(dir)?.contains(path.substringAfterLast('/')) == true
         }
 
+        @VisibleForTesting
+        internal val MIGRATION_1_2 = object : Migration(1, 2) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_plants_growZoneNumber_name` " +
+                        "ON `plants` (`growZoneNumber`, `name`)")
+            }
+        }
+
+        // Closes the database, so that the next test opens it again.
         @VisibleForTesting(otherwise = VisibleForTesting.NONE)
         fun clear() {
-            instance = null
+            synchronized(this) {
+                instance?.close()
+                instance = null
+            }
         }
     }
 }
@@ -19,6 +19,7 @@ package com.google.samples.apps.sunflower.data
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Ignore
 import androidx.room.Index
 import androidx.room.PrimaryKey
 import java.util.Calendar
@@ -30,6 +31,9 @@ import java.util.Calendar
  *
  * Declaring the column info allows for the renaming of variables without implementing a
  * database migration, as the column name would not change.
+ *
+ * Dates are kept as milliseconds since the epoch, the format of their columns, so reading a
+ * row does not create [Calendar]s. The [Calendar] properties create them on demand.
  */
 @Entity(
     tableName = "garden_plantings",
@@ -45,16 +49,29 @@ data class GardenPlanting(
      * Indicates when the [Plant] was planted. Used for showing notification when it's time
      * to harvest the plant.
      */
-    @ColumnInfo(name = "plant_date") val plantDate: Calendar = Calendar.getInstance(),
+    @ColumnInfo(name = "plant_date") val plantDateMillis: Long = System.currentTimeMillis(),
 
     /**
      * Indicates when the [Plant] was last watered. Used for showing notification when it's
      * time to water the plant.
      */
     @ColumnInfo(name = "last_watering_date")
-    val lastWateringDate: Calendar = Calendar.getInstance()
+    val lastWateringDateMillis: Long = System.currentTimeMillis()
 ) {
         @PrimaryKey(autoGenerate = true)
         @ColumnInfo(name = "id")
         var gardenPlantingId: Long = 0
-}
\ No newline at end of file
+
+        @Ignore
+        constructor(plantId: String, plantDate: Calendar, lastWateringDate: Calendar) :
+                this(plantId, plantDate.timeInMillis, lastWateringDate.timeInMillis)
+
+        val plantDate: Calendar
+                get() = calendarOf(plantDateMillis)
+
+        val lastWateringDate: Calendar
+                get() = calendarOf(lastWateringDateMillis)
+}
+
+internal fun calendarOf(millis: Long): Calendar =
+        Calendar.getInstance().apply { timeInMillis = millis }
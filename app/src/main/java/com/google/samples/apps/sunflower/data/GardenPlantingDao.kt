@@ -21,7 +21,6 @@ import androidx.room.Dao
 import androidx.room.Delete
 import androidx.room.Insert
 import androidx.room.Query
-import androidx.room.Transaction
 
 /**
  * The Data Access Object for the [GardenPlanting] class.
@@ -35,12 +34,19 @@ interface GardenPlantingDao {
     fun isPlanted(plantId: String): LiveData<Boolean>
 
     /**
-     * This query will tell Room to query both the [Plant] and [GardenPlanting] tables and handle
-     * the object mapping.
+     * Returns one row per planted [Plant], in the order of the plants table. The dates of all
+     * plantings of a plant are aggregated in SQL, so a single query loads the whole garden.
      */
-    @Transaction
-    @Query("SELECT * FROM plants WHERE id IN (SELECT DISTINCT(plant_id) FROM garden_plantings)")
-    fun getPlantedGardens(): LiveData<List<PlantAndGardenPlantings>>
+    @Query("""
+        SELECT MIN(garden_plantings.id) AS id,
+            plants.id AS plant_id, plants.name, plants.imageUrl, plants.wateringInterval,
+            MIN(garden_plantings.plant_date) AS plant_date,
+            MAX(garden_plantings.last_watering_date) AS last_watering_date
+        FROM garden_plantings INNER JOIN plants ON plants.id = garden_plantings.plant_id
+        GROUP BY plants.id
+        ORDER BY plants.rowid
+        """)
+    fun getGardenPlantingSummaries(): LiveData<List<GardenPlantingSummary>>
 
     @Insert
     suspend fun insertGardenPlanting(gardenPlanting: GardenPlanting): Long
@@ -34,7 +34,7 @@ class GardenPlantingRepository private constructor(
     fun isPlanted(plantId: String) =
             gardenPlantingDao.isPlanted(plantId)
 
-    fun getPlantedGardens() = gardenPlantingDao.getPlantedGardens()
+    fun getGardenPlantingSummaries() = gardenPlantingDao.getGardenPlantingSummaries()
 
     companion object {
 
@@ -49,5 +49,10 @@ class GardenPlantingRepository private constructor(
         fun updateDao(dao: GardenPlantingDao) {
             instance?.gardenPlantingDao = dao
         }
+
+        @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+        fun clear() {
+            instance = null
+        }
     }
 }
\ No newline at end of file
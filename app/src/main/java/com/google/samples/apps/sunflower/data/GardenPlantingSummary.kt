@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.data
+
+import androidx.room.ColumnInfo
+import java.util.Calendar
+
+/**
+ * A [Plant] in the user's garden, summarizing all of its [GardenPlanting]s in one row.
+ */
+data class GardenPlantingSummary(
+    /** The id of the earliest [GardenPlanting] of the plant, which identifies the row. */
+    @ColumnInfo(name = "id") val gardenPlantingId: Long,
+    @ColumnInfo(name = "plant_id") val plantId: String,
+    val name: String,
+    val imageUrl: String,
+    val wateringInterval: Int,
+
+    /** The date of the earliest planting of the plant, in milliseconds since the epoch. */
+    @ColumnInfo(name = "plant_date") val plantDateMillis: Long,
+
+    /** The date the plant was last watered in any of its plantings. */
+    @ColumnInfo(name = "last_watering_date") val lastWateringDateMillis: Long
+) {
+    val plantDate: Calendar
+        get() = calendarOf(plantDateMillis)
+
+    val lastWateringDate: Calendar
+        get() = calendarOf(lastWateringDateMillis)
+}
@@ -17,6 +17,7 @@
 package com.google.samples.apps.sunflower.data
 
 import androidx.lifecycle.LiveData
+import androidx.paging.DataSource
 import androidx.room.Dao
 import androidx.room.Insert
 import androidx.room.OnConflictStrategy
@@ -27,15 +28,26 @@ import androidx.room.Query
  */
 @Dao
 interface PlantDao {
-    @Query("SELECT * FROM plants ORDER BY name")
-    fun getPlants(): LiveData<List<Plant>>
+    @Query("SELECT id, name, imageUrl FROM plants ORDER BY name")
+    fun getPlantSummaries(): DataSource.Factory<Int, PlantSummary>
 
-    @Query("SELECT * FROM plants WHERE growZoneNumber = :growZoneNumber ORDER BY name")
-    fun getPlantsWithGrowZoneNumber(growZoneNumber: Int): LiveData<List<Plant>>
+    @Query("""
+        SELECT id, name, imageUrl FROM plants
+        WHERE growZoneNumber = :growZoneNumber ORDER BY name
+        """)
+    fun getPlantSummariesWithGrowZoneNumber(
+        growZoneNumber: Int
+    ): DataSource.Factory<Int, PlantSummary>
 
     @Query("SELECT * FROM plants WHERE id = :plantId")
     fun getPlant(plantId: String): LiveData<Plant>
 
+    @Query("SELECT COUNT(*) FROM plants")
+    suspend fun getPlantCount(): Int
+
+    @Query("SELECT description FROM plants WHERE id = :plantId")
+    suspend fun getPlantDescription(plantId: String): String?
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertAll(plants: List<Plant>)
 }
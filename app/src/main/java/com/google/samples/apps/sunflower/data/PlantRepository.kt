@@ -17,6 +17,9 @@
 package com.google.samples.apps.sunflower.data
 
 import androidx.annotation.VisibleForTesting
+import androidx.lifecycle.LiveData
+import androidx.paging.PagedList
+import androidx.paging.toLiveData
 
 /**
  * Repository module for handling data operations.
@@ -25,15 +28,32 @@ class PlantRepository private constructor(
         @VisibleForTesting internal var plantDao: PlantDao
 ) {
 
-    fun getPlants() = plantDao.getPlants()
-
     fun getPlant(plantId: String) = plantDao.getPlant(plantId)
 
-    fun getPlantsWithGrowZoneNumber(growZoneNumber: Int) =
-            plantDao.getPlantsWithGrowZoneNumber(growZoneNumber)
+    suspend fun getPlantDescription(plantId: String) = plantDao.getPlantDescription(plantId)
+
+    /**
+     * Returns what the plant list shows of every plant,
+     * only loading the plants around the visible ones.
+     */
+    fun getPlantSummaries(): LiveData<PagedList<PlantSummary>> =
+            plantDao.getPlantSummaries().toLiveData(PAGED_LIST_CONFIG)
+
+    fun getPlantSummariesWithGrowZoneNumber(
+        growZoneNumber: Int
+    ): LiveData<PagedList<PlantSummary>> =
+            plantDao.getPlantSummariesWithGrowZoneNumber(growZoneNumber)
+                    .toLiveData(PAGED_LIST_CONFIG)
 
     companion object {
 
+        // a page fills several screens of the plant grid. Without placeholders, the adapter
+        // never has to bind a plant that is not loaded yet.
+        private val PAGED_LIST_CONFIG = PagedList.Config.Builder()
+                .setPageSize(60)
+                .setEnablePlaceholders(false)
+                .build()
+
         // For Singleton instantiation
         @Volatile private var instance: PlantRepository? = null
 
@@ -46,5 +66,10 @@ class PlantRepository private constructor(
         fun updateDao(dao: PlantDao) {
             instance?.plantDao = dao
         }
+
+        @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+        fun clear() {
+            instance = null
+        }
     }
 }
@@ -16,17 +16,16 @@
 
 package com.google.samples.apps.sunflower.data
 
-import androidx.room.Embedded
-import androidx.room.Relation
+import androidx.room.ColumnInfo
 
 /**
- * This class captures the relationship between a [Plant] and a user's [GardenPlanting], which is
- * used by Room to fetch the related entities.
+ * The columns of a [Plant] that the plant list shows. Loading only these
+ * skips the long [Plant.description] that is only needed on the detail screen.
  */
-data class PlantAndGardenPlantings(
-    @Embedded
-    val plant: Plant,
-
-    @Relation(parentColumn = "id", entityColumn = "plant_id")
-    val gardenPlantings: List<GardenPlanting> = emptyList()
-)
+data class PlantSummary(
+    @ColumnInfo(name = "id") val plantId: String,
+    val name: String,
+    val imageUrl: String
+) {
+    override fun toString() = name
+}
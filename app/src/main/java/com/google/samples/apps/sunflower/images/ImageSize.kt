@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.apps.sunflower.images
+
+import android.content.Context
+import android.graphics.drawable.Drawable
+import com.bumptech.glide.RequestBuilder
+import com.bumptech.glide.RequestManager
+import com.google.samples.apps.sunflower.R
+import kotlin.math.roundToInt
+
+/**
+ * The sizes plant images are shown in. Images are requested in the size of a [bucket] rather
+ * than the exact size of their view, so that views of slightly different sizes, and the
+ * preloader, share the same decoded images in Glide's caches.
+ */
+enum class ImageSize {
+    /** An image in the plant list or in the garden. */
+    LIST {
+        override fun viewSize(context: Context): IntArray {
+            val resources = context.resources
+            val width = resources.displayMetrics.widthPixels /
+                resources.getInteger(R.integer.grid_columns)
+            return intArrayOf(width,
+                resources.getDimensionPixelSize(R.dimen.plant_item_image_height))
+        }
+    },
+
+    /** The header image of the plant detail screen. */
+    DETAIL {
+        override fun viewSize(context: Context) = intArrayOf(
+            context.resources.displayMetrics.widthPixels,
+            context.resources.getDimensionPixelSize(R.dimen.plant_detail_app_bar_height))
+    };
+
+    /** The approximate width and height of the views that show images of this size. */
+    abstract fun viewSize(context: Context): IntArray
+
+    /** The width and height of the images requested for this size. */
+    fun requestSize(context: Context): IntArray {
+        val (width, height) = viewSize(context)
+        return bucket(width, height)
+    }
+
+    /**
+     * Returns a request for [url] in this size. Loading and preloading with requests of
+     * the same size share their cache entries.
+     */
+    fun request(
+        requests: RequestManager,
+        context: Context,
+        url: String
+    ): RequestBuilder<Drawable> {
+        val (width, height) = requestSize(context)
+        return requests.load(url).override(width, height).centerCrop()
+    }
+
+    companion object {
+        private val BUCKET_WIDTHS = intArrayOf(240, 360, 480, 720, 1080, 1440)
+
+        /**
+         * Rounds [width] up to the next bucket and scales [height] by the same ratio.
+         * Widths above the largest bucket are kept.
+         */
+        fun bucket(width: Int, height: Int): IntArray {
+            val bucketWidth = BUCKET_WIDTHS.firstOrNull { it >= width } ?: width
+            if (width <= 0 || bucketWidth == width) {
+                return intArrayOf(width, height)
+            }
+            return intArrayOf(bucketWidth, (height * bucketWidth.toFloat() / width).roundToInt())
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.apps.sunflower.images
+
+import android.content.Context
+import com.bumptech.glide.GlideBuilder
+import com.bumptech.glide.annotation.GlideModule
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory
+import com.bumptech.glide.load.engine.cache.LruResourceCache
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator
+import com.bumptech.glide.module.AppGlideModule
+import com.google.samples.apps.sunflower.R
+
+/**
+ * Configures Glide's caches from the budgets in `integers.xml`.
+ */
+@GlideModule
+class SunflowerGlideModule : AppGlideModule() {
+
+    override fun applyOptions(context: Context, builder: GlideBuilder) {
+        val resources = context.resources
+        val memorySize = MemorySizeCalculator.Builder(context)
+            .setMemoryCacheScreens(
+                resources.getInteger(R.integer.image_memory_cache_screens).toFloat())
+            .build()
+        builder.setMemoryCache(LruResourceCache(memorySize.memoryCacheSize.toLong()))
+        builder.setDiskCache(InternalCacheDiskCacheFactory(context,
+            resources.getInteger(R.integer.image_disk_cache_megabytes) * MEGABYTE))
+    }
+
+    // all configuration is in this module.
+    override fun isManifestParsingEnabled() = false
+
+    companion object {
+        private const val MEGABYTE = 1024L * 1024L
+    }
+}
@@ -20,4 +20,7 @@ package com.google.samples.apps.sunflower.utilities
  * Constants used throughout the app.
  */
 const val DATABASE_NAME = "sunflower-db"
-const val PLANT_DATA_FILENAME = "plants.json"
\ No newline at end of file
+const val PLANT_DATA_FILENAME = "plants.json"
+
+// generated from PLANT_DATA_FILENAME at build time, see app/build.gradle
+const val SEED_DATABASE_ASSET = "databases/sunflower-db"
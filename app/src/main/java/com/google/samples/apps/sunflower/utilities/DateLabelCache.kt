@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.utilities
+
+import android.util.LongSparseArray
+import androidx.annotation.VisibleForTesting
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import java.util.TimeZone
+import java.util.concurrent.TimeUnit
+
+/**
+ * Formats dates with [pattern], remembering the label of each day it has formatted.
+ *
+ * Labels are keyed by the day in [timeZone], by default the one that was the default when the
+ * cache was created, so formatting a date whose day has been seen before is a lookup without allocations.
+ * The pattern must not contain fields smaller than a day. All methods are thread-safe.
+ */
+class DateLabelCache(
+    pattern: String,
+    locale: Locale,
+    private val timeZone: TimeZone = TimeZone.getDefault()
+) {
+
+    private val format = SimpleDateFormat(pattern, locale).also { it.timeZone = timeZone }
+    private val labels = LongSparseArray<String>()
+
+    @Synchronized
+    fun format(millis: Long): String {
+        val localMillis = millis + timeZone.getOffset(millis)
+        // rounds down for dates before the epoch, too.
+        val day = if (localMillis >= 0) {
+            localMillis / DAY_MILLIS
+        } else {
+            (localMillis + 1) / DAY_MILLIS - 1
+        }
+        labels[day]?.let { return it }
+
+        if (labels.size() >= MAX_SIZE) {
+            labels.clear()
+        }
+        return format.format(Date(millis)).also { labels.put(day, it) }
+    }
+
+    companion object {
+        private val DAY_MILLIS = TimeUnit.DAYS.toMillis(1)
+
+        // a garden rarely has more distinct dates; the limit only guards against leaks.
+        @VisibleForTesting
+        internal const val MAX_SIZE = 1024
+    }
+}
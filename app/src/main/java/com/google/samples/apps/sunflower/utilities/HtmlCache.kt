@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.utilities
+
+import android.text.Spanned
+import android.util.LruCache
+import androidx.core.text.HtmlCompat
+import androidx.core.text.HtmlCompat.FROM_HTML_MODE_COMPACT
+
+/**
+ * Keeps the [Spanned] results of parsing the HTML descriptions of the plants that were shown
+ * most recently, so that showing a plant again does not parse its HTML again.
+ *
+ * Entries are keyed by the plant id and the hash of the HTML, and only returned for exactly
+ * the same HTML. All methods are thread-safe.
+ */
+object HtmlCache {
+
+    private const val MAX_SIZE = 16
+
+    private class Entry(val html: String, val spanned: Spanned)
+
+    private val cache = LruCache<String, Entry>(MAX_SIZE)
+
+    /**
+     * Returns [html] parsed with [FROM_HTML_MODE_COMPACT], from the cache if possible.
+     *
+     * @param id identifies the owner of the HTML, such as the plant id.
+     */
+    fun fromHtml(id: String?, html: String): Spanned {
+        val key = key(id, html)
+        cache.get(key)?.let { entry ->
+            if (entry.html == html) {
+                return entry.spanned
+            }
+        }
+        // parsed outside of any lock; parsing the same HTML twice at worst.
+        val spanned = HtmlCompat.fromHtml(html, FROM_HTML_MODE_COMPACT)
+        cache.put(key, Entry(html, spanned))
+        return spanned
+    }
+
+    private fun key(id: String?, html: String) = "$id:${html.hashCode()}"
+}
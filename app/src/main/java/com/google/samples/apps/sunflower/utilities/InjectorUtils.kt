@@ -17,6 +17,7 @@
 package com.google.samples.apps.sunflower.utilities
 
 import android.content.Context
+import androidx.annotation.VisibleForTesting
 import androidx.fragment.app.Fragment
 import com.google.samples.apps.sunflower.data.AppDatabase
 import com.google.samples.apps.sunflower.data.GardenPlantingRepository
@@ -30,6 +31,10 @@ import com.google.samples.apps.sunflower.viewmodels.PlantListViewModelFactory
  */
 object InjectorUtils {
 
+    @VisibleForTesting
+    @Volatile
+    var dispatcherProvider = CoroutineDispatcherProvider()
+
     private fun getPlantRepository(context: Context): PlantRepository {
         return PlantRepository.getInstance(
                 AppDatabase.getInstance(context.applicationContext).plantDao())
@@ -57,6 +62,6 @@ object InjectorUtils {
         plantId: String
     ): PlantDetailViewModelFactory {
         return PlantDetailViewModelFactory(getPlantRepository(context),
-                getGardenPlantingRepository(context), plantId)
+                getGardenPlantingRepository(context), plantId, dispatcherProvider)
     }
 }
@@ -19,11 +19,11 @@ package com.google.samples.apps.sunflower.viewmodels
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.ViewModel
 import com.google.samples.apps.sunflower.data.GardenPlantingRepository
-import com.google.samples.apps.sunflower.data.PlantAndGardenPlantings
+import com.google.samples.apps.sunflower.data.GardenPlantingSummary
 
 class GardenPlantingListViewModel internal constructor(
     gardenPlantingRepository: GardenPlantingRepository
 ) : ViewModel() {
-    val plantAndGardenPlantings: LiveData<List<PlantAndGardenPlantings>> =
-            gardenPlantingRepository.getPlantedGardens()
+    val gardenPlantingSummaries: LiveData<List<GardenPlantingSummary>> =
+            gardenPlantingRepository.getGardenPlantingSummaries()
 }
\ No newline at end of file
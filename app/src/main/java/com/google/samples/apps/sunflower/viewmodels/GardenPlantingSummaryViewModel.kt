@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.viewmodels
+
+import androidx.databinding.ObservableField
+import com.google.samples.apps.sunflower.data.GardenPlantingSummary
+import com.google.samples.apps.sunflower.utilities.DateLabelCache
+import java.util.Locale
+
+class GardenPlantingSummaryViewModel(
+    summary: GardenPlantingSummary,
+    private val dateLabels: DateLabelCache = DEFAULT_DATE_LABELS
+) {
+    // the dates are observable so that changing them only rebinds their own views.
+    val waterDateString = ObservableField<String>()
+    val wateringInterval = summary.wateringInterval
+    val imageUrl = summary.imageUrl
+    val plantName = summary.name
+    val plantDateString = ObservableField<String>()
+    val plantId = summary.plantId
+
+    init {
+        updateDates(summary)
+    }
+
+    /**
+     * Shows the dates of [summary], which must be the same plant as the one this was created for.
+     */
+    fun updateDates(summary: GardenPlantingSummary) {
+        waterDateString.set(dateLabels.format(summary.lastWateringDateMillis))
+        plantDateString.set(dateLabels.format(summary.plantDateMillis))
+    }
+
+    companion object {
+        /** The date labels shared by all garden plantings. */
+        val DEFAULT_DATE_LABELS = DateLabelCache("MMM d, yyyy", Locale.US)
+    }
+}
@@ -16,38 +16,51 @@
 
 package com.google.samples.apps.sunflower.viewmodels
 
+import android.text.Spanned
+import androidx.lifecycle.LiveData
 import androidx.lifecycle.ViewModel
+import androidx.lifecycle.liveData
 import androidx.lifecycle.viewModelScope
 import com.google.samples.apps.sunflower.PlantDetailFragment
 import com.google.samples.apps.sunflower.data.GardenPlantingRepository
 import com.google.samples.apps.sunflower.data.PlantRepository
-import kotlinx.coroutines.CoroutineDispatcher
-import kotlinx.coroutines.Dispatchers
+import com.google.samples.apps.sunflower.utilities.CoroutineDispatcherProvider
+import com.google.samples.apps.sunflower.utilities.HtmlCache
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 
 /**
  * The ViewModel used in [PlantDetailFragment].
  */
 class PlantDetailViewModel(
-    plantRepository: PlantRepository,
+    private val plantRepository: PlantRepository,
     private val gardenPlantingRepository: GardenPlantingRepository,
-    private val plantId: String
+    private val plantId: String,
+    private val dispatchers: CoroutineDispatcherProvider = CoroutineDispatcherProvider()
 ) : ViewModel() {
 
     companion object {
-        @Volatile
-        var overrideDispatcher: CoroutineDispatcher? = null
+        // how long adding a plant to the garden takes in addition to the database insert.
+        private const val ADD_TO_GARDEN_LATENCY_MILLIS = 3000L
     }
 
     val isPlanted = gardenPlantingRepository.isPlanted(plantId)
     val plant = plantRepository.getPlant(plantId)
 
+    /**
+     * The HTML description of the plant, parsed on a background dispatcher so that binding it
+     * never parses it on the main thread. Parsed descriptions are kept in [HtmlCache], so showing
+     * the same plant again does not parse it again.
+     */
+    val description: LiveData<Spanned> = liveData(dispatchers.default) {
+        plantRepository.getPlantDescription(plantId)?.let { emit(HtmlCache.fromHtml(plantId, it)) }
+    }
+
     fun addPlantToGarden() {
-        val dispatcher = overrideDispatcher ?: Dispatchers.Default
-        viewModelScope.launch(dispatcher) {
-            // make background thread take a long time.
+        viewModelScope.launch(dispatchers.default) {
+            // make adding a plant take a long time without blocking a background thread.
             // This makes Espresso tests fail without help of idling resources.
-            Thread.sleep(3000L)
+            delay(ADD_TO_GARDEN_LATENCY_MILLIS)
             gardenPlantingRepository.createGardenPlanting(plantId)
         }
     }
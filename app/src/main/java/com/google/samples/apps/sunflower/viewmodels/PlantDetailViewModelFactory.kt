@@ -22,6 +22,7 @@ import androidx.lifecycle.ViewModelProvider
 import com.google.samples.apps.sunflower.data.GardenPlantingRepository
 import com.google.samples.apps.sunflower.data.Plant
 import com.google.samples.apps.sunflower.data.PlantRepository
+import com.google.samples.apps.sunflower.utilities.CoroutineDispatcherProvider
 
 /**
  * Factory for creating a [PlantDetailViewModel] with a constructor that takes a [PlantRepository]
@@ -30,11 +31,13 @@ import com.google.samples.apps.sunflower.data.PlantRepository
 class PlantDetailViewModelFactory(
     private val plantRepository: PlantRepository,
     private val gardenPlantingRepository: GardenPlantingRepository,
-    private val plantId: String
+    private val plantId: String,
+    private val dispatchers: CoroutineDispatcherProvider
 ) : ViewModelProvider.NewInstanceFactory() {
 
     @Suppress("UNCHECKED_CAST")
     override fun <T : ViewModel> create(modelClass: Class<T>): T {
-        return PlantDetailViewModel(plantRepository, gardenPlantingRepository, plantId) as T
+        return PlantDetailViewModel(
+                plantRepository, gardenPlantingRepository, plantId, dispatchers) as T
     }
 }
@@ -21,8 +21,9 @@ import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.SavedStateHandle
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.switchMap
+import androidx.paging.PagedList
 import com.google.samples.apps.sunflower.PlantListFragment
-import com.google.samples.apps.sunflower.data.Plant
+import com.google.samples.apps.sunflower.data.PlantSummary
 import com.google.samples.apps.sunflower.data.PlantRepository
 
 /**
@@ -33,11 +34,11 @@ class PlantListViewModel internal constructor(
     private val savedStateHandle: SavedStateHandle
 ) : ViewModel() {
 
-    val plants: LiveData<List<Plant>> = getSavedGrowZoneNumber().switchMap {
+    val plants: LiveData<PagedList<PlantSummary>> = getSavedGrowZoneNumber().switchMap {
         if (it == NO_GROW_ZONE) {
-            plantRepository.getPlants()
+            plantRepository.getPlantSummaries()
         } else {
-            plantRepository.getPlantsWithGrowZoneNumber(it)
+            plantRepository.getPlantSummariesWithGrowZoneNumber(it)
         }
     }
 
@@ -24,12 +24,21 @@ import com.google.android.material.card.MaterialCardView
 import com.google.android.material.shape.ShapeAppearanceModel
 import com.google.android.material.shape.ShapeAppearancePathProvider
 import android.annotation.SuppressLint
+import android.graphics.Outline
 import android.graphics.Path
 import android.graphics.RectF
+import android.view.View
+import android.view.ViewOutlineProvider
 
 /**
  * A Card view that clips the content of any shape, this should be done upstream in card,
  * working around it for now.
+ *
+ * Shapes that are rounded rects are clipped by the outline, which the renderer can do without
+ * clipping to a path on every draw. Other shapes, such as the asymmetric corners of the app's
+ * cards, are clipped to a path, which is only recalculated when the size of the card changes:
+ * an outline of any other shape does not clip on the API levels the app supports. They keep the
+ * outline provider of the card, which gives the shadow the shape of the card's background.
  */
 class MaskedCardView @JvmOverloads constructor(
         context: Context,
@@ -47,8 +56,22 @@ class MaskedCardView @JvmOverloads constructor(
     ).build()
     private val rectF = RectF(0f, 0f, 0f, 0f)
 
+    // the size path was calculated for.
+    private var pathWidth = 0
+    private var pathHeight = 0
+
+    private var outlineRadius = 0f
+    private val defaultOutlineProvider: ViewOutlineProvider? = outlineProvider
+    private val roundRectOutline = object : ViewOutlineProvider() {
+        override fun getOutline(view: View, outline: Outline) {
+            outline.setRoundRect(0, 0, view.width, view.height, outlineRadius)
+        }
+    }
+
     override fun onDraw(canvas: Canvas) {
-        canvas.clipPath(path)
+        if (!clipToOutline) {
+            canvas.clipPath(pathForSize())
+        }
         super.onDraw(canvas)
     }
 
@@ -56,7 +79,30 @@ class MaskedCardView @JvmOverloads constructor(
     override fun onSizeChanged(w: Int, h: Int, oldw: Int, oldh: Int) {
         rectF.right = w.toFloat()
         rectF.bottom = h.toFloat()
-        pathProvider.calculatePath(shapeAppearance, 1f, rectF, path)
+        if (shapeAppearance.isRoundRect(rectF)) {
+            outlineRadius = shapeAppearance.topLeftCornerSize.getCornerSize(rectF)
+            if (outlineProvider === roundRectOutline) {
+                invalidateOutline()
+            } else {
+                outlineProvider = roundRectOutline
+            }
+            clipToOutline = true
+        } else {
+            if (outlineProvider === roundRectOutline) {
+                outlineProvider = defaultOutlineProvider
+            }
+            clipToOutline = false
+        }
         super.onSizeChanged(w, h, oldw, oldh)
     }
-}
\ No newline at end of file
+
+    @SuppressLint("RestrictedApi")
+    private fun pathForSize(): Path {
+        if (pathWidth != width || pathHeight != height) {
+            pathProvider.calculatePath(shapeAppearance, 1f, rectF, path)
+            pathWidth = width
+            pathHeight = height
+        }
+        return path
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.workers
+
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import com.google.gson.stream.JsonReader
+import com.google.samples.apps.sunflower.data.Plant
+import com.google.samples.apps.sunflower.data.PlantDao
+import com.google.samples.apps.sunflower.utilities.PLANT_DATA_FILENAME
+import java.io.Reader
+
+/**
+ * Streams [PLANT_DATA_FILENAME] into [PlantDao.insertAll] in batches of [batchSize].
+ *
+ * See [importPlants] for the other parameters and the result.
+ */
+internal suspend fun importPlants(
+    context: Context,
+    plantDao: PlantDao,
+    batchSize: Int,
+    startIndex: Int = 0,
+    onBatchInserted: suspend (nextIndex: Int) -> Unit = {}
+): Int = context.assets.open(PLANT_DATA_FILENAME).use { inputStream ->
+    importPlants(inputStream.reader(), plantDao, batchSize, startIndex, onBatchInserted)
+}
+
+/**
+ * Streams the JSON array of plants that [reader] reads into [PlantDao.insertAll] in batches of
+ * [batchSize].
+ *
+ * The entries of the array before [startIndex] are skipped, and [onBatchInserted] is called with
+ * the index of the next entry after every full batch, so that a stopped import can be resumed
+ * there. `null` entries are counted but not inserted. Returns the number of entries in the array.
+ */
+@VisibleForTesting
+internal suspend fun importPlants(
+    reader: Reader,
+    plantDao: PlantDao,
+    batchSize: Int,
+    startIndex: Int = 0,
+    onBatchInserted: suspend (nextIndex: Int) -> Unit = {}
+): Int {
+    var index = 0
+    JsonReader(reader).use { jsonReader ->
+        val plantAdapter = PlantTypeAdapter()
+        val batch = ArrayList<Plant>(batchSize)
+        jsonReader.beginArray()
+        while (jsonReader.hasNext()) {
+            if (index < startIndex) {
+                jsonReader.skipValue()
+                index++
+                continue
+            }
+            plantAdapter.read(jsonReader)?.let { batch.add(it) }
+            index++
+            if (batch.size == batchSize) {
+                plantDao.insertAll(batch)
+                batch.clear()
+                onBatchInserted(index)
+            }
+        }
+        jsonReader.endArray()
+        if (batch.isNotEmpty()) {
+            plantDao.insertAll(batch)
+        }
+    }
+    return index
+}
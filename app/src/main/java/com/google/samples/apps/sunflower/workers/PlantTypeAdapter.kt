@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.workers
+
+import com.google.gson.JsonParseException
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.google.gson.stream.JsonWriter
+import com.google.samples.apps.sunflower.data.Plant
+
+/**
+ * Reads a [Plant] from `plants.json` without reflection.
+ *
+ * Missing `wateringInterval` and `imageUrl` fall back to the defaults of [Plant];
+ * unknown fields are skipped.
+ */
+class PlantTypeAdapter : TypeAdapter<Plant>() {
+
+    override fun read(reader: JsonReader): Plant? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+        var plantId: String? = null
+        var name: String? = null
+        var description: String? = null
+        var growZoneNumber: Int? = null
+        var wateringInterval = DEFAULT_PLANT.wateringInterval
+        var imageUrl = DEFAULT_PLANT.imageUrl
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "plantId" -> plantId = reader.nextString()
+                "name" -> name = reader.nextString()
+                "description" -> description = reader.nextString()
+                "growZoneNumber" -> growZoneNumber = reader.nextInt()
+                "wateringInterval" -> wateringInterval = reader.nextInt()
+                "imageUrl" -> imageUrl = reader.nextString()
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        return Plant(
+            plantId ?: throw missing("plantId", reader),
+            name ?: throw missing("name", reader),
+            description ?: throw missing("description", reader),
+            growZoneNumber ?: throw missing("growZoneNumber", reader),
+            wateringInterval,
+            imageUrl
+        )
+    }
+
+    override fun write(writer: JsonWriter, plant: Plant?) {
+        if (plant == null) {
+            writer.nullValue()
+            return
+        }
+        writer.beginObject()
+        writer.name("plantId").value(plant.plantId)
+        writer.name("name").value(plant.name)
+        writer.name("description").value(plant.description)
+        writer.name("growZoneNumber").value(plant.growZoneNumber.toLong())
+        writer.name("wateringInterval").value(plant.wateringInterval.toLong())
+        writer.name("imageUrl").value(plant.imageUrl)
+        writer.endObject()
+    }
+
+    private fun missing(field: String, reader: JsonReader) =
+        JsonParseException("Missing $field in plant before ${reader.path}")
+
+    companion object {
+        private val DEFAULT_PLANT = Plant("", "", "", 0)
+    }
+}
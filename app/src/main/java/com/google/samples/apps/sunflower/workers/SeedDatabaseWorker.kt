@@ -18,33 +18,45 @@ package com.google.samples.apps.sunflower.workers
 
 import android.content.Context
 import android.util.Log
+import androidx.core.content.edit
 import androidx.work.CoroutineWorker
 import androidx.work.WorkerParameters
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
-import com.google.gson.stream.JsonReader
+import androidx.work.workDataOf
 import com.google.samples.apps.sunflower.data.AppDatabase
-import com.google.samples.apps.sunflower.data.Plant
 import com.google.samples.apps.sunflower.utilities.PLANT_DATA_FILENAME
 import kotlinx.coroutines.coroutineScope
 
+/**
+ * Imports [PLANT_DATA_FILENAME] into the database.
+ *
+ * Plants are read one at a time and inserted in transactions of [BATCH_SIZE], so the memory
+ * needed does not grow with the size of the catalogue. After every batch, the index of the next
+ * entry of the file is reported as progress and saved, so that when the work is stopped and
+ * WorkManager runs it again, it resumes at that entry. The number of plants in the database cannot
+ * tell where to resume, because `null` entries are not inserted and plants with the same id
+ * replace each other.
+ */
 class SeedDatabaseWorker(
     context: Context,
     workerParams: WorkerParameters
 ) : CoroutineWorker(context, workerParams) {
     override suspend fun doWork(): Result = coroutineScope {
         try {
-            applicationContext.assets.open(PLANT_DATA_FILENAME).use { inputStream ->
-                JsonReader(inputStream.reader()).use { jsonReader ->
-                    val plantType = object : TypeToken<List<Plant>>() {}.type
-                    val plantList: List<Plant> = Gson().fromJson(jsonReader, plantType)
-
-                    val database = AppDatabase.getInstance(applicationContext)
-                    database.plantDao().insertAll(plantList)
-
-                    Result.success()
-                }
+            val plantDao = AppDatabase.getInstance(applicationContext).plantDao()
+            val preferences =
+                    applicationContext.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE)
+            // a database that was created again starts from scratch.
+            val startIndex =
+                    if (plantDao.getPlantCount() == 0) 0 else preferences.getInt(KEY_NEXT_INDEX, 0)
+            val imported = importPlants(
+                    applicationContext, plantDao, BATCH_SIZE, startIndex) { nextIndex ->
+                // saved after the batch is committed: if the work stops in between, the batch is
+                // inserted again, which replaces the same rows.
+                preferences.edit { putInt(KEY_NEXT_INDEX, nextIndex) }
+                setProgress(workDataOf(PROGRESS_IMPORTED to nextIndex))
             }
+            preferences.edit { remove(KEY_NEXT_INDEX) }
+            Result.success(workDataOf(PROGRESS_IMPORTED to imported))
         } catch (ex: Exception) {
             Log.e(TAG, "Error seeding database", ex)
             Result.failure()
@@ -53,5 +65,14 @@ class SeedDatabaseWorker(
 
     companion object {
         private val TAG = SeedDatabaseWorker::class.java.simpleName
+
+        /** The number of plants inserted per transaction. */
+        const val BATCH_SIZE = 100
+
+        /** Progress and output key holding the number of entries of the file imported so far. */
+        const val PROGRESS_IMPORTED = "imported"
+
+        private const val PREFERENCES = "seed_database"
+        private const val KEY_NEXT_INDEX = "next_index"
     }
-}
\ No newline at end of file
+}
@@ -22,16 +22,22 @@
 
 package com.example.android.architecture.blueprints.todoapp.util
 
+import android.os.Bundle
+import android.os.Handler
+import android.os.Looper
 import android.view.View
 import android.view.ViewGroup
-import androidx.core.view.children
+import android.view.ViewTreeObserver
 import androidx.databinding.DataBindingUtil
+import androidx.databinding.OnRebindCallback
 import androidx.databinding.ViewDataBinding
 import androidx.fragment.app.Fragment
 import androidx.fragment.app.FragmentActivity
+import androidx.fragment.app.FragmentManager
 import androidx.fragment.app.testing.FragmentScenario
 import androidx.test.core.app.ActivityScenario
 import androidx.test.espresso.IdlingResource
+import java.util.ArrayDeque
 import java.util.UUID
 
 /**
@@ -40,6 +46,15 @@ import java.util.UUID
  *
  * Since this application only uses fragments, the resource only checks the fragments and their
  * children instead of the whole view tree.
+ *
+ * Instead of polling, the resource listens to the first binding that it found to have pending
+ * bindings and checks again as soon as that binding has been executed, its execution has been
+ * canceled or its root has been detached.
+ *
+ * The bindings found in the view hierarchy are cached until views are added, a fragment view is
+ * created or destroyed, or the hierarchy is laid out or scrolled again, so a check usually iterates
+ * over a list without walking the views or allocating. Call [release] after unregistering the
+ * resource, so that the activity no longer holds the listeners that invalidate the cache.
  */
 class DataBindingIdlingResource : IdlingResource {
     // list of registered callbacks
@@ -53,10 +68,60 @@ class DataBindingIdlingResource : IdlingResource {
 
     lateinit var activity: FragmentActivity
 
+    // the binding that made the last check fail. Its execution triggers the next check.
+    private var pendingBinding: ViewDataBinding? = null
+    private val rebindCallback = object : OnRebindCallback<ViewDataBinding>() {
+        override fun onBound(binding: ViewDataBinding) = recheck(binding)
+
+        // a canceled rebind may leave the binding pending without ever calling onBound.
+        override fun onCanceled(binding: ViewDataBinding) = recheck(binding)
+    }
+    // the rebind of a detached root is postponed until it is attached again without calling the
+    // rebind callback, so detaching has to trigger the next check, too. The check is posted
+    // because the rest of the hierarchy may be in the middle of being detached.
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val detachListener = object : View.OnAttachStateChangeListener {
+        override fun onViewAttachedToWindow(view: View) {}
+
+        override fun onViewDetachedFromWindow(view: View) {
+            mainHandler.post { pendingBinding?.let { recheck(it) } }
+        }
+    }
+
+    // all bindings in the fragments' views. Adding or removing views always requests a layout,
+    // which the decor view reports until the layout pass has run, and RecyclerView attaches new
+    // rows while scrolling, so all of them invalidate it. Fragment views are reported as soon as
+    // they are created, before they are even attached.
+    // (ViewGroup.OnHierarchyChangeListener is not used because a ViewGroup can only have one and
+    // it only reports direct children.)
+    private val bindings = ArrayList<ViewDataBinding>()
+    private var bindingsValid = false
+    private val viewStack = ArrayDeque<View>()
+    private var observedActivity: FragmentActivity? = null
+    private var observer: ViewTreeObserver? = null
+    private val layoutListener = ViewTreeObserver.OnGlobalLayoutListener { bindingsValid = false }
+    private val scrollListener = ViewTreeObserver.OnScrollChangedListener { bindingsValid = false }
+    private val fragmentCallbacks = object : FragmentManager.FragmentLifecycleCallbacks() {
+        override fun onFragmentViewCreated(
+            fm: FragmentManager,
+            f: Fragment,
+            v: View,
+            savedInstanceState: Bundle?
+        ) {
+            bindingsValid = false
+        }
+
+        override fun onFragmentViewDestroyed(fm: FragmentManager, f: Fragment) {
+            bindingsValid = false
+        }
+    }
+
     override fun getName() = "DataBinding $id"
 
     override fun isIdleNow(): Boolean {
-        val idle = !getBindings().any { it.hasPendingBindings() }
+        val pending = pendingBinding?.takeIf { it.isPending() } ?: findPendingBinding()
+        trackPendingBinding(pending)
+        val idle = pending == null
         @Suppress("LiftReturnOrAssignment")
         if (idle) {
             if (wasNotIdle) {
@@ -66,10 +131,6 @@ class DataBindingIdlingResource : IdlingResource {
             wasNotIdle = false
         } else {
             wasNotIdle = true
-            // check next frame
-            activity.findViewById<View>(android.R.id.content).postDelayed({
-                isIdleNow
-            }, 16)
         }
         return idle
     }
@@ -78,26 +139,102 @@ class DataBindingIdlingResource : IdlingResource {
         idlingCallbacks.add(callback)
     }
 
+    private fun recheck(binding: ViewDataBinding) {
+        if (binding === pendingBinding && wasNotIdle) {
+            isIdleNow
+        }
+    }
+
+    private fun trackPendingBinding(binding: ViewDataBinding?) {
+        val previous = pendingBinding
+        if (previous !== binding) {
+            previous?.removeOnRebindCallback(rebindCallback)
+            previous?.root?.removeOnAttachStateChangeListener(detachListener)
+            binding?.addOnRebindCallback(rebindCallback)
+            binding?.root?.addOnAttachStateChangeListener(detachListener)
+            pendingBinding = binding
+        }
+    }
+
+    /**
+     * A binding of a detached view won't be executed until the view is attached again, so it
+     * does not keep the resource busy.
+     */
+    private fun ViewDataBinding.isPending() = hasPendingBindings() && root.isAttachedToWindow
+
+    private fun findPendingBinding(): ViewDataBinding? {
+        if (!bindingsValid || activity.window.decorView.isLayoutRequested) {
+            collectBindings()
+        }
+        for (i in bindings.indices) {
+            val binding = bindings[i]
+            if (binding.isPending()) {
+                return binding
+            }
+        }
+        return null
+    }
+
     /**
      * Find all binding classes in all currently available fragments.
      */
-    private fun getBindings(): List<ViewDataBinding> {
-        val fragments = (activity as? FragmentActivity)
-                ?.supportFragmentManager
-                ?.fragments
-
-        val bindings = fragments?.mapNotNull {
-            it.view?.flattenHierarchy()?.mapNotNull { view ->
-                DataBindingUtil.getBinding<ViewDataBinding>(view)
+    private fun collectBindings() {
+        observeHierarchy()
+        bindings.clear()
+        activity.supportFragmentManager.fragments.forEach { fragment ->
+            fragment.view?.let { viewStack.push(it) }
+            while (viewStack.isNotEmpty()) {
+                val view = viewStack.pop()
+                DataBindingUtil.getBinding<ViewDataBinding>(view)?.let { bindings.add(it) }
+                if (view is ViewGroup) {
+                    for (i in 0 until view.childCount) {
+                        viewStack.push(view.getChildAt(i))
+                    }
+                }
             }
-        }?.flatten()
-        return bindings ?: emptyList()
+        }
+        bindingsValid = true
     }
 
-    private fun View.flattenHierarchy(): List<View> = if (this is ViewGroup) {
-        listOf(this) + children.map { it.flattenHierarchy() }.flatten()
-    } else {
-        listOf(this)
+    private fun observeHierarchy() {
+        val current = observer
+        if (observedActivity === activity && current != null && current.isAlive) {
+            return
+        }
+        stopObserving()
+        observedActivity = activity
+        activity.supportFragmentManager.registerFragmentLifecycleCallbacks(fragmentCallbacks, true)
+        observer = activity.window.decorView.viewTreeObserver.apply {
+            addOnGlobalLayoutListener(layoutListener)
+            addOnScrollChangedListener(scrollListener)
+        }
+    }
+
+    private fun stopObserving() {
+        observedActivity?.supportFragmentManager
+            ?.unregisterFragmentLifecycleCallbacks(fragmentCallbacks)
+        observer?.takeIf { it.isAlive }?.apply {
+            removeOnGlobalLayoutListener(layoutListener)
+            removeOnScrollChangedListener(scrollListener)
+        }
+        observedActivity = null
+        observer = null
+        bindingsValid = false
+    }
+
+    /**
+     * Removes the listeners this resource has added to the activity and its bindings. Call it
+     * after unregistering the resource. It may be called from any thread.
+     */
+    fun release() {
+        if (Looper.myLooper() !== Looper.getMainLooper()) {
+            mainHandler.post { release() }
+            return
+        }
+        trackPendingBinding(null)
+        stopObserving()
+        bindings.clear()
+        wasNotIdle = false
     }
 }
 
@@ -5,7 +5,7 @@ import androidx.test.espresso.action.ViewActions
 import androidx.test.espresso.contrib.RecyclerViewActions
 import androidx.test.espresso.matcher.ViewMatchers
 import com.google.samples.apps.sunflower.R
-import com.google.samples.apps.sunflower.adapters.PlantAdapter
+import com.google.samples.apps.sunflower.adapters.PagedPlantAdapter
 import com.google.samples.apps.sunflower.childAtPosition
 import org.hamcrest.Matchers
 object PlantListPage {
@@ -26,7 +26,7 @@ object PlantListPage {
     fun showPlantDetail(plantName: String): PlantDetailPage {
         println("***showPlantDetail")
         Espresso.onView(ViewMatchers.withId(R.id.plant_list))
-                .perform(RecyclerViewActions.actionOnItem<PlantAdapter.PlantViewHolder>(ViewMatchers.hasDescendant(ViewMatchers.withText(plantName)), ViewActions.click()))
+                .perform(RecyclerViewActions.actionOnItem<PagedPlantAdapter.PlantViewHolder>(ViewMatchers.hasDescendant(ViewMatchers.withText(plantName)), ViewActions.click()))
         return PlantDetailPage
     }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.util
+
+import androidx.test.espresso.IdlingResource
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import java.util.Collections
+import java.util.IdentityHashMap
+import java.util.UUID
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * Keeps Espresso waiting while coroutines that run on [dispatcher] are in flight.
+ *
+ * Inject [dispatcher] through `InjectorUtils.dispatcherProvider` and register this resource.
+ * The dispatcher hands every task to [delegate], and records the [Job] of the coroutine that the
+ * task belongs to. The resource is busy until every recorded job has completed, so a coroutine
+ * that is suspended on work outside the dispatcher, such as a `delay` or a Room query, still
+ * keeps Espresso waiting. The coroutines themselves only ever run on [delegate].
+ */
+class CoroutineIdlingResource(
+    private val delegate: CoroutineDispatcher = Dispatchers.Default
+) : IdlingResource {
+    // resourceName of an IdlingResource must be unique
+    private val name = "coroutine dispatcher id=${UUID.randomUUID()}"
+
+    // guarded by itself.
+    private val activeJobs = Collections.newSetFromMap(IdentityHashMap<Job, Boolean>())
+
+    @Volatile
+    private var callback: IdlingResource.ResourceCallback? = null
+
+    /** The dispatcher whose coroutines this resource waits for. */
+    val dispatcher: CoroutineDispatcher = object : CoroutineDispatcher() {
+        override fun isDispatchNeeded(context: CoroutineContext) =
+            delegate.isDispatchNeeded(context)
+
+        override fun dispatch(context: CoroutineContext, block: Runnable) {
+            context[Job]?.let { track(it) }
+            delegate.dispatch(context, block)
+        }
+
+        override fun toString() = name
+    }
+
+    override fun getName() = name
+
+    override fun isIdleNow() = synchronized(activeJobs) { activeJobs.isEmpty() }
+
+    override fun registerIdleTransitionCallback(callback: IdlingResource.ResourceCallback) {
+        this.callback = callback
+    }
+
+    private fun track(job: Job) {
+        // a coroutine is dispatched again after every suspension, but tracked only once.
+        if (synchronized(activeJobs) { activeJobs.add(job) }) {
+            job.invokeOnCompletion { untrack(job) }
+        }
+    }
+
+    private fun untrack(job: Job) {
+        val idle = synchronized(activeJobs) { activeJobs.remove(job) && activeJobs.isEmpty() }
+        if (idle) {
+            callback?.onTransitionToIdle()
+        }
+    }
+
+    override fun toString() = name
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.test.espresso.base;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import androidx.test.espresso.AppNotIdleException;
+import androidx.test.espresso.IdlingPolicies;
+import androidx.test.espresso.IdlingPolicy;
+import androidx.test.espresso.IdlingRegistry;
+import androidx.test.espresso.IdlingResource;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that {@link IdlingLocalUiController} drives the loopers registered with {@link
+ * IdlingRegistry#registerLooperAsIdlingResource} in virtual time.
+ */
+@RunWith(AndroidJUnit4.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class BackgroundLooperTest {
+    // shorter than the clock skew that virtual-time mode allows, so that nothing sleeps.
+    private static final long WORK_DELAY_MILLIS = 2_000L;
+
+    private final BusyUntilWorkDone resource = new BusyUntilWorkDone();
+    private HandlerThread thread;
+    private boolean virtualTimeEnabled;
+    private IdlingPolicy masterPolicy;
+
+    @Before
+    public void setUp() {
+        virtualTimeEnabled = IdlingLocalUiController.isVirtualTimeEnabled();
+        masterPolicy = IdlingPolicies.getMasterIdlingPolicy();
+        IdlingLocalUiController.setVirtualTimeEnabled(true);
+        thread = new HandlerThread("worker");
+        thread.start();
+        IdlingRegistry.getInstance().registerLooperAsIdlingResource(thread.getLooper());
+        IdlingRegistry.getInstance().register(resource);
+    }
+
+    @After
+    public void tearDown() {
+        IdlingRegistry.getInstance().unregister(resource);
+        IdlingRegistry.getInstance().unregisterLooperAsIdlingResource(thread.getLooper());
+        thread.quit();
+        IdlingLocalUiController.setVirtualTimeEnabled(virtualTimeEnabled);
+        IdlingPolicies.setMasterPolicyTimeout(
+                masterPolicy.getIdleTimeout(), masterPolicy.getIdleTimeoutUnit());
+    }
+
+    @Test
+    public void loopMainThreadUntilIdle_runsDelayedWorkOfBackgroundLooper() {
+        long start = SystemClock.uptimeMillis();
+        new Handler(thread.getLooper()).postDelayed(resource::workDone, WORK_DELAY_MILLIS);
+        assertFalse(resource.isIdleNow());
+
+        new IdlingLocalUiController().loopMainThreadUntilIdle();
+
+        assertTrue(resource.isIdleNow());
+        // the Robolectric clock was advanced to the background task, and not past it.
+        assertEquals(start + WORK_DELAY_MILLIS, resource.doneAtMillis);
+    }
+
+    @Test
+    public void loopMainThreadUntilIdle_blockedBackgroundLooper_timesOut() {
+        IdlingPolicies.setMasterPolicyTimeout(1, TimeUnit.SECONDS);
+        CountDownLatch unblock = new CountDownLatch(1);
+        new Handler(thread.getLooper()).post(() -> awaitUninterruptibly(unblock));
+        try {
+            new IdlingLocalUiController().loopMainThreadUntilIdle();
+            fail("the main thread waited for the blocked background looper forever");
+        } catch (AppNotIdleException expected) {
+        } finally {
+            unblock.countDown();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class BusyUntilWorkDone implements IdlingResource {
+        private final String name = "background work " + UUID.randomUUID();
+        private volatile boolean done;
+        private volatile long doneAtMillis;
+        private volatile ResourceCallback callback;
+
+        void workDone() {
+            doneAtMillis = SystemClock.uptimeMillis();
+            done = true;
+            ResourceCallback callback = this.callback;
+            if (callback != null) {
+                callback.onTransitionToIdle();
+            }
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isIdleNow() {
+            return done;
+        }
+
+        @Override
+        public void registerIdleTransitionCallback(ResourceCallback callback) {
+            this.callback = callback;
+        }
+    }
+}
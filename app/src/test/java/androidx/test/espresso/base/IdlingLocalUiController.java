@@ -35,6 +35,7 @@ import androidx.test.espresso.GraphHolderWrapper;
 import androidx.test.espresso.IdlingPolicies;
 import androidx.test.espresso.IdlingPolicy;
 import androidx.test.espresso.IdlingRegistry;
+import androidx.test.espresso.IdlingResource;
 
 import com.google.common.collect.Lists;
 
@@ -43,27 +44,35 @@ import org.robolectric.annotation.LooperMode;
 import org.robolectric.shadows.ShadowLooper;
 
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.Callable;
-import java.util.concurrent.FutureTask;
 
 import static androidx.test.espresso.base.IdlingResourceRegistry.IdleNotificationCallback;
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 public class IdlingLocalUiController extends LocalUiController implements Handler.Callback {
     private static final String TAG = "IdlingLocalUiController";
 
-    private static final Callable<Void> NO_OP =
-            new Callable<Void>() {
-                @Override
-                public Void call() {
-                    return null;
-                }
-            };
+    /**
+     * System property that enables virtual-time mode when set to {@code true}.
+     *
+     * @see #setVirtualTimeEnabled(boolean)
+     */
+    public static final String VIRTUAL_TIME_PROPERTY = "espresso.robolectric.virtualTime";
+
+    private static volatile boolean virtualTimeEnabled = Boolean.getBoolean(VIRTUAL_TIME_PROPERTY);
+
+    private static volatile IdlingProfiler profiler;
+
+    // The condition sets are never modified, so every loop shares them.
+    private static final EnumSet<IdleCondition> NO_CONDITIONS = EnumSet.noneOf(IdleCondition.class);
+    private static final EnumSet<IdleCondition> DYNAMIC_TASKS_CONDITIONS =
+            EnumSet.of(IdleCondition.DYNAMIC_TASKS_HAVE_IDLED);
+    private static final EnumSet<IdleCondition> DELAY_CONDITIONS =
+            EnumSet.of(IdleCondition.DELAY_HAS_PAST);
 
     /**
      * Responsible for signaling a particular condition is met / verifying that signal.
@@ -76,6 +85,7 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
         MOTION_INJECTION_HAS_COMPLETED,
         DYNAMIC_TASKS_HAVE_IDLED;
 
+        private static final IdleCondition[] ALL = values();
 
         /**
          * Checks whether this condition has been signaled.
@@ -104,11 +114,10 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
          */
         public static boolean handleMessage(
                 Message message, BitSet conditionSet, int currentGeneration) {
-            IdleCondition[] allConditions = values();
-            if (message.what < 0 || message.what >= allConditions.length) {
+            if (message.what < 0 || message.what >= ALL.length) {
                 return false;
             } else {
-                IdleCondition condition = allConditions[message.what];
+                IdleCondition condition = ALL[message.what];
                 if (message.arg1 == currentGeneration) {
                     condition.signal(conditionSet);
                 } else {
@@ -126,7 +135,27 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
         }
 
         public static BitSet createConditionSet() {
-            return new BitSet(values().length);
+            return new BitSet(ALL.length);
+        }
+
+        /**
+         * Returns whether all of {@code conditions} have been signaled. Unlike iterating over the
+         * set, this does not allocate.
+         */
+        static boolean allSignaled(EnumSet<IdleCondition> conditions, BitSet conditionSet) {
+            for (IdleCondition condition : ALL) {
+                if (conditions.contains(condition) && !condition.isSignaled(conditionSet)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Resets the signal state of all conditions.
+         */
+        static void resetAll(BitSet conditionSet) {
+            conditionSet.clear();
         }
 
         /**
@@ -153,12 +182,67 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
     private int generation = 0;
     private final IdlingResourceRegistry dynamicRegistry;
 
+    // Reused by every loop, so that an interaction with an idle UI does not allocate.
+    private final MainThreadInterrogation reusableInterrogation =
+            new MainThreadInterrogation(conditionSet);
+    private final DynamicIdleCallback dynamicIdleCallback = new DynamicIdleCallback();
+    private IdleNotifier<IdleNotificationCallback> dynamicNotifier;
+    private long syncedRegistryVersion = IdlingRegistryVersion.UNKNOWN;
+    // the profiler whose wrappers of the idling resources are registered, if any.
+    private IdlingProfiler syncedProfiler;
+    // the loopers registered with IdlingRegistry, which are driven along with the main looper.
+    private final PausedLooperInterrogator.BackgroundLoopers backgroundLoopers =
+            new PausedLooperInterrogator.BackgroundLoopers();
+
     public IdlingLocalUiController() {
         dynamicRegistry = GraphHolderWrapper.baseLayer().idlingResourceRegistry();
     }
 
+    /**
+     * Enables or disables virtual-time mode.
+     *
+     * <p>By default the main looper is never run ahead of the wall clock: before a delayed task is
+     * dispatched, the calling thread sleeps until the task is due in real time, too. In virtual-time
+     * mode the Robolectric clock is advanced straight to the next task instead, and the thread only
+     * sleeps when the Robolectric clock would get more than half of the dynamic idling resource
+     * timeout ahead of the wall clock. Timeouts of idling resources are measured against the
+     * Robolectric clock, so resources that are driven by real background threads still get at least
+     * half of their timeout in real time.
+     */
+    public static void setVirtualTimeEnabled(boolean enabled) {
+        virtualTimeEnabled = enabled;
+    }
+
+    public static boolean isVirtualTimeEnabled() {
+        return virtualTimeEnabled;
+    }
+
+    /**
+     * Installs a profiler that records every following interaction, or removes it when {@code
+     * profiler} is {@code null}. No profiling data is collected by default.
+     *
+     * @see IdlingReportRule
+     */
+    public static void setProfiler(IdlingProfiler profiler) {
+        IdlingLocalUiController.profiler = profiler;
+    }
+
     @Override
     public void loopMainThreadUntilIdle() {
+        IdlingProfiler profiler = IdlingLocalUiController.profiler;
+        if (profiler != null) {
+            profiler.beginInteraction("loopMainThreadUntilIdle");
+        }
+        try {
+            loopMainThreadUntilIdleInternal();
+        } finally {
+            if (profiler != null) {
+                profiler.endInteraction();
+            }
+        }
+    }
+
+    private void loopMainThreadUntilIdleInternal() {
         super.loopMainThreadUntilIdle();
         if (!isPausedLooperMode()) {
             // supported only PAUSED looper mode.
@@ -168,31 +252,11 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
         checkState(Looper.myLooper() == Looper.getMainLooper(), "Expecting to be on main thread!");
         IdleNotifier<IdleNotificationCallback> dynamicIdle = provideDynamicNotifier(dynamicRegistry);
         do {
-            EnumSet<IdleCondition> condChecks = EnumSet.noneOf(IdleCondition.class);
+            EnumSet<IdleCondition> condChecks = NO_CONDITIONS;
             if (!dynamicIdle.isIdleNow()) {
-                final IdlingPolicy warning = IdlingPolicies.getDynamicIdlingResourceWarningPolicy();
-                final IdlingPolicy error = IdlingPolicies.getDynamicIdlingResourceErrorPolicy();
-                final SignalingTask<Void> idleSignal =
-                        new SignalingTask<Void>(NO_OP, IdleCondition.DYNAMIC_TASKS_HAVE_IDLED, generation);
-                dynamicIdle.registerNotificationCallback(
-                        new IdleNotificationCallback() {
-                            @Override
-                            public void resourcesStillBusyWarning(List<String> busyResourceNames) {
-                                warning.handleTimeout(busyResourceNames, "IdlingResources are still busy!");
-                            }
-
-                            @Override
-                            public void resourcesHaveTimedOut(List<String> busyResourceNames) {
-                                error.handleTimeout(busyResourceNames, "IdlingResources have timed out!");
-                                controllerHandler.post(idleSignal);
-                            }
-
-                            @Override
-                            public void allResourcesIdle() {
-                                controllerHandler.post(idleSignal);
-                            }
-                        });
-                condChecks.add(IdleCondition.DYNAMIC_TASKS_HAVE_IDLED);
+                dynamicIdleCallback.signalGeneration = generation;
+                dynamicIdle.registerNotificationCallback(dynamicIdleCallback);
+                condChecks = DYNAMIC_TASKS_CONDITIONS;
             }
 
             try {
@@ -207,6 +271,20 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
 
     @Override
     public void loopMainThreadForAtLeast(long millisDelay) {
+        IdlingProfiler profiler = IdlingLocalUiController.profiler;
+        if (profiler != null) {
+            profiler.beginInteraction("loopMainThreadForAtLeast");
+        }
+        try {
+            loopMainThreadForAtLeastInternal(millisDelay);
+        } finally {
+            if (profiler != null) {
+                profiler.endInteraction();
+            }
+        }
+    }
+
+    private void loopMainThreadForAtLeastInternal(long millisDelay) {
         if (!isPausedLooperMode()) {
             // supported only PAUSED looper mode.
             super.loopMainThreadForAtLeast(millisDelay);
@@ -216,14 +294,13 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
         checkState(Looper.myLooper() == Looper.getMainLooper(), "Expecting to be on main thread!");
         checkState(!IdleCondition.DELAY_HAS_PAST.isSignaled(conditionSet), "recursion detected!");
         checkArgument(millisDelay > 0);
-        controllerHandler.postAtTime(
-                new SignalingTask<>(NO_OP, IdleCondition.DELAY_HAS_PAST, generation),
-                generation,
+        controllerHandler.sendMessageAtTime(
+                IdleCondition.DELAY_HAS_PAST.createSignal(controllerHandler, generation),
                 SystemClock.uptimeMillis() + millisDelay);
         // We advance the system clock by `millisDelay` and execute pending tasks before calling loopUntil().
         super.loopMainThreadForAtLeast(millisDelay);
         IdleNotifier<IdleNotificationCallback> dynamicIdle = provideDynamicNotifier(dynamicRegistry);
-        loopUntil(IdleCondition.DELAY_HAS_PAST, dynamicIdle);
+        loopUntil(DELAY_CONDITIONS, dynamicIdle);
         loopMainThreadUntilIdle();
     }
 
@@ -237,11 +314,6 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
         }
     }
 
-    private void loopUntil(
-            IdleCondition condition, IdleNotifier<IdleNotificationCallback> dynamicIdle) {
-        loopUntil(EnumSet.of(condition), dynamicIdle);
-    }
-
     private boolean isPausedLooperMode() {
         return ShadowLooper.looperMode() == LooperMode.Mode.PAUSED;
     }
@@ -252,14 +324,16 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
      * <p>Once they've been signaled, the conditions are reset and the generation value is
      * incremented.
      *
-     * <p>Signals should only be raised through SignalingTask instances, and care should be taken to
-     * ensure that the signaling task is created before loopUntil is called.
+     * <p>Signals should only be raised through {@link IdleCondition#createSignal} messages, and care
+     * should be taken to ensure that the generation of the signal is read before loopUntil is
+     * called.
      *
      * <p>Good:
      *
      * <pre>{@code
-     * idlingType.runOnIdle(new SignalingTask(NO_OP, IdleCondition.MY_IDLE_CONDITION, generation));
-     * loopUntil(IdleCondition.MY_IDLE_CONDITION);
+     * dynamicIdleCallback.signalGeneration = generation;
+     * dynamicIdle.registerNotificationCallback(dynamicIdleCallback);
+     * loopUntil(DYNAMIC_TASKS_CONDITIONS, dynamicIdle);
      * }</pre>
      *
      * <p>Bad:
@@ -267,24 +341,32 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
      * <pre>{@code
      * idlingType.runOnIdle(new CustomCallback() {
      *   @Override public void itsDone() {
-     *     // oh no - The creation of this signaling task is delayed until this method is
-     *     // called, so it will not have the right value for generation.
-     *     new SignalingTask(NO_OP, IdleCondition.MY_IDLE_CONDITION, generation).run();
+     *     // oh no - The generation is read when this method is called,
+     *     // so it will not have the right value.
+     *     handler.sendMessage(IdleCondition.MY_IDLE_CONDITION.createSignal(handler, generation));
      *     }
      *   })
-     *   loopUntil(IdleCondition.MY_IDLE_CONDITION);
+     *   loopUntil(MY_IDLE_CONDITIONS, dynamicIdle);
      * }</pre>
      */
     private IdleNotifier<IdleNotificationCallback> loopUntil(
             EnumSet<IdleCondition> conditions, IdleNotifier<IdleNotificationCallback> dynamicIdle) {
         IdlingPolicy masterIdlePolicy = IdlingPolicies.getMasterIdlingPolicy();
+        IdlingProfiler profiler = IdlingLocalUiController.profiler;
+        if (profiler != null) {
+            profiler.beginLoop(conditions);
+        }
         try {
             long start = SystemClock.uptimeMillis();
             long end =
                     start + masterIdlePolicy.getIdleTimeoutUnit().toMillis(masterIdlePolicy.getIdleTimeout());
-            interrogation = new MainThreadInterrogation(conditions, conditionSet, end);
+            interrogation = reusableInterrogation.reset(conditions, end);
 
-            InterrogationStatus result = PausedLooperInterrogator.loopAndInterrogate(interrogation);
+            InterrogationStatus result =
+                    PausedLooperInterrogator.loopAndInterrogate(
+                            interrogation,
+                            maxClockSkewMillis(),
+                            backgroundLoopers.isEmpty() ? null : backgroundLoopers);
             if (InterrogationStatus.COMPLETED == result) {
                 // did not time out, all conditions happy.
                 return dynamicIdle;
@@ -309,39 +391,81 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
                             masterIdlePolicy.getIdleTimeout(),
                             masterIdlePolicy.getIdleTimeoutUnit().name()));
         } finally {
-            generation++;
-            for (IdleCondition condition : conditions) {
-                condition.reset(conditionSet);
+            if (profiler != null) {
+                profiler.endLoop(conditions, interrogation != null ? interrogation.execCount : 0);
             }
+            generation++;
+            // signals of the previous generation are ignored, so every condition can be reset.
+            IdleCondition.resetAll(conditionSet);
             interrogation = null;
         }
         return dynamicIdle;
     }
 
+    /**
+     * Returns how far the Robolectric clock may run ahead of the wall clock while looping.
+     */
+    private static long maxClockSkewMillis() {
+        if (!virtualTimeEnabled) {
+            return 0L;
+        }
+        IdlingPolicy warning = IdlingPolicies.getDynamicIdlingResourceWarningPolicy();
+        IdlingPolicy error = IdlingPolicies.getDynamicIdlingResourceErrorPolicy();
+        long timeoutMillis =
+                Math.min(
+                        warning.getIdleTimeoutUnit().toMillis(warning.getIdleTimeout()),
+                        error.getIdleTimeoutUnit().toMillis(error.getIdleTimeout()));
+        return timeoutMillis / 2;
+    }
+
     // copied from BaseLayerModule.java
     private IdleNotifier<IdleNotificationCallback> provideDynamicNotifier(
             IdlingResourceRegistry dynamicRegistry) {
         // Since a dynamic notifier will be created for each Espresso interaction this is a good time
         // to sync the IdlingRegistry with IdlingResourceRegistry.
-        dynamicRegistry.sync(
-                IdlingRegistry.getInstance().getResources(), IdlingRegistry.getInstance().getLoopers());
-        return dynamicRegistry.asIdleNotifier();
+        // Syncing copies and compares all resources, so it is skipped when nothing was registered or
+        // unregistered, and no profiler was installed or removed, since the last sync.
+        long registryVersion = IdlingRegistryVersion.current();
+        IdlingProfiler profiler = IdlingLocalUiController.profiler;
+        if (registryVersion == IdlingRegistryVersion.UNKNOWN
+                || registryVersion != syncedRegistryVersion
+                || profiler != syncedProfiler) {
+            Collection<IdlingResource> resources = IdlingRegistry.getInstance().getResources();
+            Collection<Looper> loopers = IdlingRegistry.getInstance().getLoopers();
+            dynamicRegistry.sync(profiler != null ? profiler.profile(resources) : resources, loopers);
+            backgroundLoopers.set(loopers);
+            syncedRegistryVersion = registryVersion;
+            syncedProfiler = profiler;
+        }
+        if (dynamicNotifier == null) {
+            // the notifier only delegates to the registry, so it can be reused.
+            dynamicNotifier = dynamicRegistry.asIdleNotifier();
+        }
+        return dynamicNotifier;
     }
 
     private static final class MainThreadInterrogation
             implements PausedLooperInterrogator.InterrogationHandler<InterrogationStatus> {
-        private final EnumSet<IdleCondition> conditions;
         private final BitSet conditionSet;
-        private final long giveUpAtMs;
+        private EnumSet<IdleCondition> conditions;
+        private long giveUpAtMs;
 
         private InterrogationStatus status = InterrogationStatus.COMPLETED;
         private int execCount = 0;
 
-        MainThreadInterrogation(
-                EnumSet<IdleCondition> conditions, BitSet conditionSet, long giveUpAtMs) {
-            this.conditions = conditions;
+        MainThreadInterrogation(BitSet conditionSet) {
             this.conditionSet = conditionSet;
+        }
+
+        /**
+         * Prepares this interrogation for the next loop.
+         */
+        MainThreadInterrogation reset(EnumSet<IdleCondition> conditions, long giveUpAtMs) {
+            this.conditions = conditions;
             this.giveUpAtMs = giveUpAtMs;
+            status = InterrogationStatus.COMPLETED;
+            execCount = 0;
+            return this;
         }
 
         @Override
@@ -405,19 +529,17 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
             if (InterrogationStatus.INTERRUPTED == status) {
                 return true; // we want to stop.
             }
-            boolean conditionsMet = true;
-            boolean shouldLogConditionState = execCount > 0 && execCount % 100 == 0;
-            for (IdleCondition condition : conditions) {
-                if (!condition.isSignaled(conditionSet)) {
-                    conditionsMet = false;
-                    if (shouldLogConditionState) {
+            if (IdleCondition.allSignaled(conditions, conditionSet)) {
+                return true;
+            }
+            if (execCount > 0 && execCount % 100 == 0) {
+                for (IdleCondition condition : conditions) {
+                    if (!condition.isSignaled(conditionSet)) {
                         Log.w(TAG, "Waiting for: " + condition.name() + " for " + execCount + " iterations.");
-                    } else {
-                        break;
                     }
                 }
             }
-            return conditionsMet;
+            return false;
         }
     }
 
@@ -428,22 +550,35 @@ public class IdlingLocalUiController extends LocalUiController implements Handle
     }
 
     /**
-     * Encapsulates posting a signal message to update the conditions set after a task has executed.
+     * Raises {@link IdleCondition#DYNAMIC_TASKS_HAVE_IDLED} for the generation of the loop it was
+     * registered for. Signals of an older generation are ignored by {@link #handleMessage}, so a
+     * single instance serves every loop.
      */
-    private class SignalingTask<T> extends FutureTask<T> {
+    private final class DynamicIdleCallback implements IdleNotificationCallback {
+        private int signalGeneration;
 
-        private final IdleCondition condition;
-        private final int myGeneration;
+        @Override
+        public void resourcesStillBusyWarning(List<String> busyResourceNames) {
+            IdlingPolicies.getDynamicIdlingResourceWarningPolicy()
+                    .handleTimeout(busyResourceNames, "IdlingResources are still busy!");
+        }
 
-        public SignalingTask(Callable<T> callable, IdleCondition condition, int myGeneration) {
-            super(callable);
-            this.condition = checkNotNull(condition);
-            this.myGeneration = myGeneration;
+        @Override
+        public void resourcesHaveTimedOut(List<String> busyResourceNames) {
+            IdlingPolicies.getDynamicIdlingResourceErrorPolicy()
+                    .handleTimeout(busyResourceNames, "IdlingResources have timed out!");
+            signal();
         }
 
         @Override
-        protected void done() {
-            controllerHandler.sendMessage(condition.createSignal(controllerHandler, myGeneration));
+        public void allResourcesIdle() {
+            signal();
+        }
+
+        private void signal() {
+            controllerHandler.sendMessage(
+                    IdleCondition.DYNAMIC_TASKS_HAVE_IDLED.createSignal(
+                            controllerHandler, signalGeneration));
         }
     }
 }
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.test.espresso.base;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.test.espresso.IdlingResource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records where {@link IdlingLocalUiController} spends its time.
+ *
+ * <p>Every top-level call to {@link IdlingLocalUiController#loopMainThreadUntilIdle()} or {@link
+ * IdlingLocalUiController#loopMainThreadForAtLeast(long)} is recorded as one {@link Interaction}.
+ * Espresso makes these calls before and after each view action and assertion. Times are recorded
+ * both on the wall clock and on the Robolectric clock, which runs ahead of the wall clock in
+ * virtual-time mode.
+ *
+ * <p>The profiler never asks an idling resource whether it is idle itself, because {@link
+ * IdlingResource#isIdleNow()} may have side effects. Instead, the controller registers the wrappers
+ * returned by {@link #profile(Collection)} with Espresso, and each wrapper records when the calls
+ * that Espresso makes anyway find its resource busy and when the resource reports its transition to
+ * idle.
+ *
+ * <p>Install a profiler with {@link IdlingLocalUiController#setProfiler(IdlingProfiler)}, usually
+ * through {@link IdlingReportRule}. A profiler must only be used on the main thread.
+ */
+public final class IdlingProfiler {
+
+    /** The wall-clock and virtual time spent on something. */
+    public static final class Timing {
+        long wallMillis;
+        long virtualMillis;
+
+        public long getWallMillis() {
+            return wallMillis;
+        }
+
+        public long getVirtualMillis() {
+            return virtualMillis;
+        }
+
+        void add(long wallMillis, long virtualMillis) {
+            this.wallMillis += wallMillis;
+            this.virtualMillis += virtualMillis;
+        }
+    }
+
+    /** What happened during a single top-level call to the controller. */
+    public static final class Interaction {
+        private final String kind;
+        private final Timing total = new Timing();
+        private final Map<String, Timing> conditions = new LinkedHashMap<>();
+        private final Map<String, Timing> busyResources = new LinkedHashMap<>();
+        private int iterations;
+
+        Interaction(String kind) {
+            this.kind = kind;
+        }
+
+        /** The name of the {@link IdlingLocalUiController} method that was called. */
+        public String getKind() {
+            return kind;
+        }
+
+        /** The number of main looper tasks dispatched while waiting for idle conditions. */
+        public int getIterations() {
+            return iterations;
+        }
+
+        public Timing getTotal() {
+            return total;
+        }
+
+        /** The time spent waiting for each idle condition, keyed by the condition's name. */
+        public Map<String, Timing> getConditions() {
+            return Collections.unmodifiableMap(conditions);
+        }
+
+        /**
+         * The time each idling resource was seen busy while waiting for dynamic idling resources,
+         * keyed by the resource's name.
+         */
+        public Map<String, Timing> getBusyResources() {
+            return Collections.unmodifiableMap(busyResources);
+        }
+
+        private Timing timing(Map<String, Timing> timings, String name) {
+            Timing timing = timings.get(name);
+            if (timing == null) {
+                timing = new Timing();
+                timings.put(name, timing);
+            }
+            return timing;
+        }
+    }
+
+    private final List<Interaction> interactions = new ArrayList<>();
+
+    private Interaction current;
+    private int depth;
+    private long interactionWallStart;
+    private long interactionVirtualStart;
+
+    private long loopWallStart;
+    private long loopVirtualStart;
+    // whether the current loop waits for the idling resources.
+    private boolean waitingForResources;
+    // the wrapper of every resource that has been profiled, and the ones that are registered now.
+    private final Map<IdlingResource, ProfiledResource> profiledResources = new IdentityHashMap<>();
+    private final List<ProfiledResource> registeredResources = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public List<Interaction> getInteractions() {
+        return Collections.unmodifiableList(interactions);
+    }
+
+    void beginInteraction(String kind) {
+        if (depth++ > 0) {
+            // loopMainThreadForAtLeast() calls loopMainThreadUntilIdle().
+            return;
+        }
+        current = new Interaction(kind);
+        interactionWallStart = PausedLooperInterrogator.wallClockMillis();
+        interactionVirtualStart = SystemClock.uptimeMillis();
+    }
+
+    void endInteraction() {
+        if (--depth > 0) {
+            return;
+        }
+        current.total.add(
+                PausedLooperInterrogator.wallClockMillis() - interactionWallStart,
+                SystemClock.uptimeMillis() - interactionVirtualStart);
+        interactions.add(current);
+        current = null;
+    }
+
+    /**
+     * Returns the resources to register with Espresso in place of {@code resources}. The same
+     * resource is always wrapped by the same instance, so that syncing Espresso's registry only
+     * replaces resources when the profiler is installed or removed.
+     */
+    List<IdlingResource> profile(Collection<IdlingResource> resources) {
+        registeredResources.clear();
+        List<IdlingResource> profiled = new ArrayList<>(resources.size());
+        for (IdlingResource resource : resources) {
+            ProfiledResource wrapper = profiledResources.get(resource);
+            if (wrapper == null) {
+                wrapper = new ProfiledResource(resource);
+                profiledResources.put(resource, wrapper);
+            }
+            registeredResources.add(wrapper);
+            profiled.add(wrapper);
+        }
+        return profiled;
+    }
+
+    /**
+     * Called when the controller starts looping until {@code conditions} are met. Busy time of
+     * idling resources is only recorded while the controller waits for them.
+     */
+    void beginLoop(EnumSet<IdlingLocalUiController.IdleCondition> conditions) {
+        loopWallStart = PausedLooperInterrogator.wallClockMillis();
+        loopVirtualStart = SystemClock.uptimeMillis();
+        waitingForResources =
+                conditions.contains(IdlingLocalUiController.IdleCondition.DYNAMIC_TASKS_HAVE_IDLED);
+        if (waitingForResources) {
+            // resources that were left busy by the last loop are busy from the start of this one.
+            for (int i = 0; i < registeredResources.size(); i++) {
+                ProfiledResource resource = registeredResources.get(i);
+                resource.busyWallSince = loopWallStart;
+                resource.busyVirtualSince = loopVirtualStart;
+            }
+        }
+    }
+
+    void endLoop(EnumSet<IdlingLocalUiController.IdleCondition> conditions, int iterations) {
+        long wallNow = PausedLooperInterrogator.wallClockMillis();
+        long virtualNow = SystemClock.uptimeMillis();
+        if (waitingForResources) {
+            for (int i = 0; i < registeredResources.size(); i++) {
+                ProfiledResource resource = registeredResources.get(i);
+                if (resource.busy) {
+                    addBusyTime(resource, wallNow, virtualNow);
+                }
+            }
+            waitingForResources = false;
+        }
+        if (current == null) {
+            // the profiler was installed in the middle of an interaction.
+            return;
+        }
+        current.iterations += iterations;
+        for (IdlingLocalUiController.IdleCondition condition : conditions) {
+            current.timing(current.conditions, condition.name())
+                    .add(wallNow - loopWallStart, virtualNow - loopVirtualStart);
+        }
+    }
+
+    private void addBusyTime(ProfiledResource resource, long wallNow, long virtualNow) {
+        if (current != null) {
+            current.timing(current.busyResources, resource.getName())
+                    .add(wallNow - resource.busyWallSince, virtualNow - resource.busyVirtualSince);
+        }
+    }
+
+    /**
+     * Forwards to an idling resource and records when Espresso finds it busy and when it becomes
+     * idle again. Only {@link ResourceCallback#onTransitionToIdle()} may be called on other threads.
+     */
+    private final class ProfiledResource implements IdlingResource {
+        private final IdlingResource resource;
+        private final Runnable becameIdle = this::becameIdle;
+
+        boolean busy;
+        long busyWallSince;
+        long busyVirtualSince;
+
+        ProfiledResource(IdlingResource resource) {
+            this.resource = resource;
+        }
+
+        @Override
+        public String getName() {
+            return resource.getName();
+        }
+
+        @Override
+        public boolean isIdleNow() {
+            boolean idle = resource.isIdleNow();
+            if (idle) {
+                becameIdle();
+            } else if (!busy) {
+                busy = true;
+                busyWallSince = PausedLooperInterrogator.wallClockMillis();
+                busyVirtualSince = SystemClock.uptimeMillis();
+            }
+            return idle;
+        }
+
+        @Override
+        public void registerIdleTransitionCallback(ResourceCallback callback) {
+            resource.registerIdleTransitionCallback(
+                    () -> {
+                        if (Looper.myLooper() == Looper.getMainLooper()) {
+                            becameIdle();
+                        } else {
+                            mainHandler.post(becameIdle);
+                        }
+                        callback.onTransitionToIdle();
+                    });
+        }
+
+        private void becameIdle() {
+            if (!busy) {
+                return;
+            }
+            busy = false;
+            if (waitingForResources) {
+                addBusyTime(
+                        this, PausedLooperInterrogator.wallClockMillis(), SystemClock.uptimeMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.test.espresso.base;
+
+import android.util.Log;
+
+import androidx.test.espresso.IdlingRegistry;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Counts the changes to the resources and loopers of {@link IdlingRegistry}, so that {@link
+ * IdlingLocalUiController} only syncs its {@link IdlingResourceRegistry} when something was
+ * registered or unregistered since the last sync.
+ *
+ * <p>{@link IdlingRegistry} does not tell anyone about changes, so the sets it keeps its resources
+ * and loopers in are replaced with counting ones through reflection. When that fails, a warning
+ * is logged once and {@link #current()} returns {@link #UNKNOWN}, so callers have to sync every
+ * time. With the system property {@value #STRICT_PROPERTY} set to {@code true}, which the unit
+ * tests of this project do, {@link #current()} throws instead, so that a newer Espresso cannot
+ * silently make every interaction slower.
+ */
+final class IdlingRegistryVersion {
+    private static final String TAG = "IdlingRegistryVersion";
+
+    static final String STRICT_PROPERTY = "espresso.robolectric.strictRegistryVersion";
+
+    /** Returned by {@link #current()} when changes cannot be counted. */
+    static final long UNKNOWN = -1L;
+
+    private static final Object lock = new Object();
+    private static boolean installed;
+    private static CountingSet<?> resources;
+    private static CountingSet<?> loopers;
+    private static Exception installFailure;
+
+    private IdlingRegistryVersion() {}
+
+    /**
+     * Returns a number that changes whenever a resource or looper is registered or unregistered,
+     * or {@link #UNKNOWN}.
+     *
+     * @throws IllegalStateException if changes cannot be counted and {@value #STRICT_PROPERTY} is
+     *     set
+     */
+    static long current() {
+        CountingSet<?> resources;
+        CountingSet<?> loopers;
+        Exception installFailure;
+        synchronized (lock) {
+            if (!installed) {
+                install();
+                installed = true;
+            }
+            resources = IdlingRegistryVersion.resources;
+            loopers = IdlingRegistryVersion.loopers;
+            installFailure = IdlingRegistryVersion.installFailure;
+        }
+        if (resources == null || loopers == null) {
+            if (Boolean.getBoolean(STRICT_PROPERTY)) {
+                throw new IllegalStateException(
+                        "cannot count IdlingRegistry changes", installFailure);
+            }
+            return UNKNOWN;
+        }
+        return resources.changes + loopers.changes;
+    }
+
+    private static void install() {
+        IdlingRegistry registry = IdlingRegistry.getInstance();
+        try {
+            Field resourcesField = IdlingRegistry.class.getDeclaredField("resources");
+            Field loopersField = IdlingRegistry.class.getDeclaredField("loopers");
+            CountingSet<Object> countingResources = replace(registry, resourcesField);
+            CountingSet<Object> countingLoopers = replace(registry, loopersField);
+            resources = countingResources;
+            loopers = countingLoopers;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            installFailure = e;
+            Log.w(TAG, "cannot count IdlingRegistry changes, syncing on every interaction", e);
+        }
+    }
+
+    // The replacement is synchronized like the original, and keeps the registered elements.
+    @SuppressWarnings("unchecked")
+    private static CountingSet<Object> replace(IdlingRegistry registry, Field field)
+            throws IllegalAccessException {
+        field.setAccessible(true);
+        Set<Object> original = (Set<Object>) field.get(registry);
+        CountingSet<Object> counting = new CountingSet<>();
+        synchronized (original) {
+            counting.addAll(original);
+            field.set(registry, Collections.synchronizedSet(counting));
+        }
+        return counting;
+    }
+
+    /** A set that counts the calls that changed it. */
+    private static final class CountingSet<E> extends HashSet<E> {
+        volatile long changes;
+
+        @Override
+        public boolean add(E e) {
+            return changed(super.add(e));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return changed(super.remove(o));
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends E> c) {
+            return changed(super.addAll(c));
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            return changed(super.removeAll(c));
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            return changed(super.retainAll(c));
+        }
+
+        @Override
+        public void clear() {
+            changed(!isEmpty());
+            super.clear();
+        }
+
+        // only called while the synchronized wrapper holds its lock.
+        @SuppressWarnings("NonAtomicOperationOnVolatileField")
+        private boolean changed(boolean changed) {
+            if (changed) {
+                changes++;
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.test.espresso.base;
+
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A rule that profiles {@link IdlingLocalUiController} while a test runs and writes a report of
+ * every interaction.
+ *
+ * <p>The rule does nothing unless the {@link #REPORT_DIR_PROPERTY} system property names a
+ * directory, which {@code ./gradlew testDebugUnitTest -PidlingReports} does. For each test, {@code
+ * <test class>/<test method>.csv} and {@code .json} are written to that directory, and a line with
+ * the totals of the test is appended to {@code summary.csv}. Sort {@code summary.csv} by {@code
+ * wall_ms} to find the slowest tests, then look at their reports to see whether the time went into
+ * the main looper, an idling resource or {@code loopMainThreadForAtLeast}.
+ */
+public final class IdlingReportRule extends TestWatcher {
+
+    /** System property that names the directory the reports are written to. */
+    public static final String REPORT_DIR_PROPERTY = "espresso.robolectric.idlingReports";
+
+    private static final String CSV_HEADER =
+            "interaction,kind,iterations,subject,name,wall_ms,virtual_ms";
+    private static final String SUMMARY_HEADER =
+            "test,interactions,iterations,wall_ms,virtual_ms";
+
+    private final File reportDir;
+    private IdlingProfiler profiler;
+
+    public IdlingReportRule() {
+        String dir = System.getProperty(REPORT_DIR_PROPERTY);
+        reportDir = dir == null || dir.isEmpty() ? null : new File(dir);
+    }
+
+    @Override
+    protected void starting(Description description) {
+        if (reportDir != null) {
+            profiler = new IdlingProfiler();
+            IdlingLocalUiController.setProfiler(profiler);
+        }
+    }
+
+    @Override
+    protected void finished(Description description) {
+        if (profiler == null) {
+            return;
+        }
+        IdlingLocalUiController.setProfiler(null);
+        try {
+            writeReport(description, profiler.getInteractions());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write the idling report of " + description, e);
+        } finally {
+            profiler = null;
+        }
+    }
+
+    private void writeReport(Description description, List<IdlingProfiler.Interaction> interactions)
+            throws IOException {
+        File classDir = new File(reportDir, fileName(description.getClassName()));
+        classDir.mkdirs();
+        String methodName = fileName(String.valueOf(description.getMethodName()));
+        write(new File(classDir, methodName + ".csv"), toCsv(interactions));
+        write(new File(classDir, methodName + ".json"), Collections.singletonList(toJson(interactions)));
+        appendSummary(description, interactions);
+    }
+
+    private static List<String> toCsv(List<IdlingProfiler.Interaction> interactions) {
+        List<String> lines = new ArrayList<>();
+        lines.add(CSV_HEADER);
+        for (int i = 0; i < interactions.size(); i++) {
+            IdlingProfiler.Interaction interaction = interactions.get(i);
+            String prefix = i + "," + interaction.getKind() + "," + interaction.getIterations() + ",";
+            lines.add(prefix + "total,," + csv(interaction.getTotal()));
+            for (Map.Entry<String, IdlingProfiler.Timing> condition :
+                    interaction.getConditions().entrySet()) {
+                lines.add(prefix + "condition," + condition.getKey() + "," + csv(condition.getValue()));
+            }
+            for (Map.Entry<String, IdlingProfiler.Timing> resource :
+                    interaction.getBusyResources().entrySet()) {
+                lines.add(
+                        prefix
+                                + "resource,"
+                                + csvField(resource.getKey())
+                                + ","
+                                + csv(resource.getValue()));
+            }
+        }
+        return lines;
+    }
+
+    private static String toJson(List<IdlingProfiler.Interaction> interactions) {
+        StringBuilder json = new StringBuilder("{\"interactions\":[");
+        for (int i = 0; i < interactions.size(); i++) {
+            IdlingProfiler.Interaction interaction = interactions.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\n{\"kind\":").append(jsonString(interaction.getKind()))
+                    .append(",\"iterations\":").append(interaction.getIterations())
+                    .append(",\"total\":").append(json(interaction.getTotal()))
+                    .append(",\"conditions\":").append(json(interaction.getConditions()))
+                    .append(",\"busyResources\":").append(json(interaction.getBusyResources()))
+                    .append('}');
+        }
+        return json.append("\n]}").toString();
+    }
+
+    private void appendSummary(
+            Description description, List<IdlingProfiler.Interaction> interactions)
+            throws IOException {
+        int iterations = 0;
+        long wallMillis = 0;
+        long virtualMillis = 0;
+        for (IdlingProfiler.Interaction interaction : interactions) {
+            iterations += interaction.getIterations();
+            wallMillis += interaction.getTotal().getWallMillis();
+            virtualMillis += interaction.getTotal().getVirtualMillis();
+        }
+        File summary = new File(reportDir, "summary.csv");
+        List<String> lines = new ArrayList<>();
+        lines.add(
+                String.format(
+                        Locale.ROOT,
+                        "%s,%d,%d,%d,%d",
+                        csvField(description.getDisplayName()),
+                        interactions.size(),
+                        iterations,
+                        wallMillis,
+                        virtualMillis));
+        // every fork runs its tests one at a time, but parallel forks append to the same summary,
+        // so the file is locked across processes.
+        try (FileChannel channel =
+                        FileChannel.open(
+                                summary.toPath(),
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.APPEND);
+                FileLock lock = channel.lock()) {
+            if (channel.size() == 0) {
+                lines.add(0, SUMMARY_HEADER);
+            }
+            StringBuilder text = new StringBuilder();
+            for (String line : lines) {
+                text.append(line).append(System.lineSeparator());
+            }
+            channel.write(ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static void write(File file, List<String> lines) throws IOException {
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    private static String fileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static String csv(IdlingProfiler.Timing timing) {
+        return timing.getWallMillis() + "," + timing.getVirtualMillis();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(IdlingProfiler.Timing timing) {
+        return "{\"wallMs\":" + timing.getWallMillis() + ",\"virtualMs\":" + timing.getVirtualMillis() + "}";
+    }
+
+    private static String json(Map<String, IdlingProfiler.Timing> timings) {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, IdlingProfiler.Timing> timing : timings.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(jsonString(timing.getKey())).append(':').append(json(timing.getValue()));
+        }
+        return json.append('}').toString();
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
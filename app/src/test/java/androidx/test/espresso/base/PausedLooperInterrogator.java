@@ -23,21 +23,33 @@
 package androidx.test.espresso.base;
 
 import android.os.Binder;
+import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.os.MessageQueue;
 import android.os.SystemClock;
 import android.util.Log;
 
+import androidx.test.espresso.IdlingPolicies;
+import androidx.test.espresso.IdlingPolicy;
+
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.shadows.ShadowPausedMessageQueue;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.time.Duration;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.throwIfUnchecked;
@@ -48,7 +60,8 @@ final class PausedLooperInterrogator {
 
     private static final String TAG = "PausedLooperInterrogator";
     private static final Method messageQueueNextMethod;
-    private static final Field messageQueueHeadField;
+    private static final MethodHandle messageQueueHeadGetter;
+    private static final MethodHandle messageNextGetter;
     private static final Method recycleUncheckedMethod;
 
     private static final int LOOKAHEAD_MILLIS = 15;
@@ -59,15 +72,24 @@ final class PausedLooperInterrogator {
                     return Boolean.FALSE;
                 }
             };
+    // A looper is bound to its thread, so the inspector of the calling thread can be reused as long
+    // as the thread's looper stays the same.
+    private static final ThreadLocal<QueueInspector> inspectors = new ThreadLocal<>();
 
     static {
         try {
             messageQueueNextMethod = MessageQueue.class.getDeclaredMethod("next");
             messageQueueNextMethod.setAccessible(true);
 
-            messageQueueHeadField = MessageQueue.class.getDeclaredField("mMessages");
+            Field messageQueueHeadField = MessageQueue.class.getDeclaredField("mMessages");
             messageQueueHeadField.setAccessible(true);
+            messageQueueHeadGetter = MethodHandles.lookup().unreflectGetter(messageQueueHeadField);
+
+            Field messageNextField = Message.class.getDeclaredField("next");
+            messageNextField.setAccessible(true);
+            messageNextGetter = MethodHandles.lookup().unreflectGetter(messageNextField);
         } catch (IllegalArgumentException
+                | IllegalAccessException
                 | NoSuchFieldException
                 | SecurityException
                 | NoSuchMethodException e) {
@@ -134,34 +156,100 @@ final class PausedLooperInterrogator {
      * Loops the main thread and informs the interrogation handler at interesting points in the exec
      * state.
      *
+     * <p>The Robolectric clock never runs ahead of the wall clock, so that idling resources which
+     * are driven by real background threads get the same amount of real time to become idle as
+     * they would on a device.
+     *
      * @param handler an interrogation handler that controls whether to continue looping or not.
      */
     static <R> R loopAndInterrogate(InterrogationHandler<R> handler) {
+        return loopAndInterrogate(handler, 0L);
+    }
+
+    /**
+     * Loops the main thread and informs the interrogation handler at interesting points in the exec
+     * state.
+     *
+     * <p>Before each task is dispatched the Robolectric clock is advanced to the time the task is
+     * scheduled for. The clock may run ahead of the wall clock by at most {@code
+     * maxClockSkewMillis}; only when advancing the clock would exceed that bound does this method
+     * sleep until the wall clock has caught up. Idling resource timeouts are scheduled on the main
+     * looper and therefore measured against the Robolectric clock, so the skew must be kept below
+     * those timeouts to give resources driven by real background threads a chance to become idle.
+     *
+     * @param handler an interrogation handler that controls whether to continue looping or not.
+     * @param maxClockSkewMillis how far the Robolectric clock may run ahead of the wall clock. 0
+     *     keeps both clocks in step.
+     */
+    static <R> R loopAndInterrogate(InterrogationHandler<R> handler, long maxClockSkewMillis) {
+        return loopAndInterrogate(handler, maxClockSkewMillis, null);
+    }
+
+    /**
+     * Like {@link #loopAndInterrogate(InterrogationHandler, long)}, but drives the loopers of
+     * other threads, too.
+     *
+     * <p>A background looper that has a task due is woken by posting to it, so that its own thread
+     * runs the task, and the main thread is not reported idle until the looper has run every task
+     * that was due. Meanwhile the main thread waits for the looper, for at most the timeout of the
+     * master idling policy; see {@link BackgroundLoopers#awaitWokenLoopers()}. A background task
+     * that is due soon keeps the main thread busy, too. When the next task of a background looper
+     * is due before the head of the main queue, the Robolectric clock is advanced to it instead of
+     * to the main task. Without this, a delayed task of a background looper would only become due
+     * when the main looper happened to be advanced past it.
+     *
+     * @param backgroundLoopers the loopers to drive, or {@code null}.
+     */
+    static <R> R loopAndInterrogate(
+            InterrogationHandler<R> handler,
+            long maxClockSkewMillis,
+            BackgroundLoopers backgroundLoopers) {
         checkSanity();
+        checkArgument(maxClockSkewMillis >= 0, "maxClockSkewMillis must not be negative");
         interrogating.set(Boolean.TRUE);
         boolean stillInterested = true;
-        MessageQueue q = Looper.myQueue();
+        QueueInspector inspector = inspectorForMyLooper();
+        final long virtualStart = SystemClock.uptimeMillis();
+        final long wallStart = wallClockMillis();
         // We may have an identity when we're called - we want to restore it at the end of the fn.
         final long entryIdentity = Binder.clearCallingIdentity();
         try {
             // this identity should not get changed by dispatching the loop until the observer is happy.
             final long threadIdentity = Binder.clearCallingIdentity();
             while (stillInterested) {
+                long backgroundWhen =
+                        backgroundLoopers == null
+                                ? Long.MAX_VALUE
+                                : backgroundLoopers.wakeDueLoopers();
                 // run until the observer is no longer interested.
-                stillInterested = interrogateQueueState(q, handler);
+                stillInterested = interrogateQueueState(inspector, handler, backgroundWhen);
                 if (stillInterested) {
-                    Duration nextScheduledTaskTime = shadowOf(Looper.myLooper()).getNextScheduledTaskTime();
                     // the observer cannot stop us from dispatching this message - but we need to let it know
                     // that we're about to dispatch.
-                    if (nextScheduledTaskTime.equals(Duration.ZERO)) {
+                    // a barrier without an asynchronous message behind it holds back every task,
+                    // so there is nothing to run until something else removes the barrier.
+                    long mainWhen = inspector.nextWhen();
+                    if (mainWhen == Long.MAX_VALUE && backgroundWhen == Long.MAX_VALUE) {
                         handler.quitting();
                         return handler.get();
                     }
                     stillInterested = handler.beforeTaskDispatch();
-                    // we must advance both the system clock and the real clock.
-                    // idling resource will time out immediately unless the real clock is advanced.
-                    Thread.sleep(nextScheduledTaskTime.toMillis());
-                    shadowOf(Looper.myLooper()).runToNextTask();
+                    if (backgroundWhen < mainWhen) {
+                        // the background looper is woken when the loop comes around.
+                        long delayMillis =
+                                Math.max(0L, backgroundWhen - SystemClock.uptimeMillis());
+                        if (delayMillis == 0L) {
+                            // a background looper is still running its due tasks.
+                            backgroundLoopers.awaitWokenLoopers();
+                            continue;
+                        }
+                        awaitWallClock(virtualStart, wallStart, delayMillis, maxClockSkewMillis);
+                        inspector.advanceClock(delayMillis);
+                        continue;
+                    }
+                    long delayMillis = Math.max(0L, mainWhen - SystemClock.uptimeMillis());
+                    awaitWallClock(virtualStart, wallStart, delayMillis, maxClockSkewMillis);
+                    inspector.runToNextTask();
                     // ensure looper invariants
                     final long newIdentity = Binder.clearCallingIdentity();
                     // Detect binder id corruption.
@@ -185,41 +273,314 @@ final class PausedLooperInterrogator {
         return handler.get();
     }
 
+    /**
+     * Sleeps just long enough that the Robolectric clock, once advanced by {@code delayMillis}, is
+     * at most {@code maxClockSkewMillis} ahead of the wall clock.
+     */
+    private static void awaitWallClock(
+            long virtualStart, long wallStart, long delayMillis, long maxClockSkewMillis)
+            throws InterruptedException {
+        long virtualElapsed = SystemClock.uptimeMillis() + delayMillis - virtualStart;
+        long wallElapsed = wallClockMillis() - wallStart;
+        long sleepMillis = sleepMillisForSkew(virtualElapsed, wallElapsed, maxClockSkewMillis);
+        if (sleepMillis > 0) {
+            Thread.sleep(sleepMillis);
+        }
+    }
+
+    /**
+     * Returns how long to sleep so that the Robolectric clock is at most {@code maxClockSkewMillis}
+     * ahead of the wall clock. {@link Long#MAX_VALUE} never sleeps; the skew is only subtracted
+     * once the Robolectric clock is known to be ahead by more than it, so the result cannot
+     * overflow.
+     */
+    static long sleepMillisForSkew(long virtualElapsed, long wallElapsed, long maxClockSkewMillis) {
+        long aheadMillis = virtualElapsed - wallElapsed;
+        if (aheadMillis <= maxClockSkewMillis) {
+            return 0L;
+        }
+        return aheadMillis - maxClockSkewMillis;
+    }
+
+    /**
+     * Returns the wall clock time. {@link System#currentTimeMillis()} is not used because
+     * Robolectric may redirect it to its own clock.
+     */
+    static long wallClockMillis() {
+        return Clock.systemUTC().millis();
+    }
+
     private static boolean interrogateQueueState(
-            MessageQueue q, QueueInterrogationHandler<?> handler) {
-        synchronized (q) {
-            final Message head;
-            try {
-                head = (Message) messageQueueHeadField.get(q);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
-            if (null == head) {
-                // no messages pending - AT ALL!
-                return handler.queueEmpty();
-            } else if (null == head.getTarget()) {
-                // null target is a sync barrier token.
-                if (Log.isLoggable(TAG, Log.DEBUG)) {
-                    Log.d(TAG, "barrier is up");
-                }
-                return handler.barrierUp();
-            }
-            long headWhen = head.getWhen();
-            long nowFuz = SystemClock.uptimeMillis() + LOOKAHEAD_MILLIS;
+            QueueInspector inspector, QueueInterrogationHandler<?> handler, long backgroundWhen) {
+        inspector.refresh();
+        if (backgroundWhen < SystemClock.uptimeMillis() + LOOKAHEAD_MILLIS) {
+            // a background looper is about to run a task, which may post to the main looper.
+            return handler.taskDueSoon();
+        }
+        if (inspector.isEmpty()) {
+            // no messages pending - AT ALL!
+            return handler.queueEmpty();
+        } else if (inspector.isBarrierUp()) {
+            // null target is a sync barrier token.
             if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(
-                        TAG,
-                        "headWhen: " + headWhen + " nowFuz: " + nowFuz + " due long: " + (nowFuz < headWhen));
+                Log.d(TAG, "barrier is up");
             }
-            if (nowFuz > headWhen) {
-                return handler.taskDueSoon();
-            }
-            return handler.taskDueLong();
+            return handler.barrierUp();
+        }
+        long nextWhen = inspector.nextWhen();
+        long nowFuz = SystemClock.uptimeMillis() + LOOKAHEAD_MILLIS;
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(
+                    TAG,
+                    "nextWhen: " + nextWhen + " nowFuz: " + nowFuz + " due long: " + (nowFuz < nextWhen));
         }
+        if (nowFuz > nextWhen) {
+            return handler.taskDueSoon();
+        }
+        return handler.taskDueLong();
+    }
+
+    private static QueueInspector inspectorForMyLooper() {
+        Looper looper = Looper.myLooper();
+        QueueInspector inspector = inspectors.get();
+        if (inspector == null || inspector.looper != looper) {
+            inspector = new QueueInspector(looper);
+            inspectors.set(inspector);
+        }
+        return inspector;
     }
 
     private static void checkSanity() {
         checkState(Looper.myLooper() != null, "Calling non-looper thread!");
         checkState(Boolean.FALSE.equals(interrogating.get()), "Already interrogating!");
     }
+
+    /**
+     * Reads the state of a looper's queue. The head of the queue is read through a method handle
+     * bound to the queue and the shadow of the looper is looked up only once, so an interrogation
+     * step costs a single, briefly held lock on the queue.
+     */
+    private static final class QueueInspector {
+        private final Looper looper;
+        private final MessageQueue queue;
+        private final ShadowLooper shadowLooper;
+        private final MethodHandle headGetter;
+
+        // Snapshot of the head taken by the last refresh().
+        private boolean empty;
+        private boolean barrierUp;
+        private long nextWhen;
+
+        QueueInspector(Looper looper) {
+            this.looper = checkNotNull(looper);
+            this.queue = looper.getQueue();
+            this.shadowLooper = shadowOf(looper);
+            this.headGetter = messageQueueHeadGetter.bindTo(queue);
+        }
+
+        /**
+         * Takes a snapshot of the head of the queue and of the next message the looper can run.
+         * The lock is released before the snapshot is handed to the interrogation handler, so other
+         * threads are never blocked by it.
+         */
+        void refresh() {
+            synchronized (queue) {
+                try {
+                    Message head = (Message) headGetter.invokeExact();
+                    empty = head == null;
+                    barrierUp = !empty && head.getTarget() == null;
+                    Message next = head;
+                    if (barrierUp) {
+                        // only asynchronous messages get past a sync barrier.
+                        do {
+                            next = (Message) messageNextGetter.invokeExact(next);
+                        } while (next != null && !next.isAsynchronous());
+                    }
+                    nextWhen = next == null ? Long.MAX_VALUE : next.getWhen();
+                } catch (Throwable t) {
+                    throwIfUnchecked(t);
+                    throw new RuntimeException(t);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return empty;
+        }
+
+        boolean isBarrierUp() {
+            return barrierUp;
+        }
+
+        /**
+         * Returns the uptime at which the next message the looper can run is due, or {@link
+         * Long#MAX_VALUE} when the queue is empty or a sync barrier holds back every message.
+         */
+        long nextWhen() {
+            return nextWhen;
+        }
+
+        void runToNextTask() {
+            shadowLooper.runToNextTask();
+        }
+
+        /**
+         * Advances the Robolectric clock by idling the looper for {@code millis}. Only used when
+         * the looper has no task that is due before then.
+         */
+        void advanceClock(long millis) {
+            if (millis > 0) {
+                shadowLooper.idleFor(millis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * The loopers of other threads that {@link #loopAndInterrogate(InterrogationHandler, long,
+     * BackgroundLoopers)} drives along with the main looper, such as the loopers that are
+     * registered with {@code IdlingRegistry.registerLooperAsIdlingResource()}.
+     *
+     * <p>The loopers are never run from the main thread, since their threads may be running a task
+     * at the same time. Instead, a looper with a due task is woken by posting an asynchronous
+     * message to it, which its thread handles once it has run every task that was due before.
+     *
+     * <p>Must only be used on the main thread.
+     */
+    static final class BackgroundLoopers {
+        // how often a wait for the loopers checks whether their threads are still alive.
+        private static final long POLL_MILLIS = 10L;
+        private static final long NOT_BUSY = -1L;
+
+        private final List<BackgroundLooper> loopers = new ArrayList<>();
+        // notified whenever a looper has handled its wake-up message.
+        private final Object wakeUpLock = new Object();
+        // the wall clock time since which some looper has always had a task due, or NOT_BUSY.
+        private long busySinceMillis = NOT_BUSY;
+
+        /** Replaces the loopers to drive. The main looper is ignored. */
+        void set(Collection<Looper> loopers) {
+            this.loopers.clear();
+            for (Looper looper : loopers) {
+                if (looper != Looper.getMainLooper()) {
+                    this.loopers.add(new BackgroundLooper(looper, wakeUpLock));
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return loopers.isEmpty();
+        }
+
+        /**
+         * Wakes every looper that has a task due, and returns the uptime at which the next task of
+         * any looper is due. That is now as long as a looper has not yet run the tasks it was woken
+         * for, and {@link Long#MAX_VALUE} when no looper has a task.
+         */
+        long wakeDueLoopers() {
+            long now = SystemClock.uptimeMillis();
+            long when = Long.MAX_VALUE;
+            for (int i = 0; i < loopers.size(); i++) {
+                when = Math.min(when, loopers.get(i).wakeIfDue(now));
+            }
+            if (when > now) {
+                busySinceMillis = NOT_BUSY;
+            }
+            return when;
+        }
+
+        /**
+         * Blocks until every looper has run the tasks it was woken for.
+         *
+         * <p>A looper whose task blocks, or which keeps posting tasks that are due right away,
+         * would never let the Robolectric clock move on, so the idling timeout of Espresso would
+         * never fire. Instead, once the loopers have had tasks due for the timeout of the master
+         * idling policy in wall time, the policy handles the timeout, which usually throws.
+         */
+        void awaitWokenLoopers() throws InterruptedException {
+            IdlingPolicy policy = IdlingPolicies.getMasterIdlingPolicy();
+            if (busySinceMillis == NOT_BUSY) {
+                busySinceMillis = wallClockMillis();
+            }
+            long deadline =
+                    busySinceMillis + policy.getIdleTimeoutUnit().toMillis(policy.getIdleTimeout());
+            synchronized (wakeUpLock) {
+                List<String> busy;
+                while (!(busy = wokenLooperNames()).isEmpty()) {
+                    long remainingMillis = deadline - wallClockMillis();
+                    if (remainingMillis <= 0) {
+                        busySinceMillis = NOT_BUSY;
+                        policy.handleTimeout(
+                                busy,
+                                String.format(
+                                        Locale.ROOT,
+                                        "Background loopers did not run their due tasks in %s %s.",
+                                        policy.getIdleTimeout(),
+                                        policy.getIdleTimeoutUnit().name()));
+                        return;
+                    }
+                    wakeUpLock.wait(Math.min(remainingMillis, POLL_MILLIS));
+                }
+            }
+        }
+
+        private List<String> wokenLooperNames() {
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < loopers.size(); i++) {
+                BackgroundLooper looper = loopers.get(i);
+                if (looper.isWaking()) {
+                    names.add(looper.inspector.looper.getThread().getName());
+                }
+            }
+            return names;
+        }
+    }
+
+    private static final class BackgroundLooper {
+        private final QueueInspector inspector;
+        private final Handler handler;
+        private final Runnable wakeUp;
+        // set while the wake-up message is queued, so the queue is not inspected meanwhile.
+        private volatile boolean waking;
+
+        BackgroundLooper(Looper looper, Object wakeUpLock) {
+            inspector = new QueueInspector(looper);
+            handler = new Handler(looper);
+            wakeUp =
+                    () -> {
+                        synchronized (wakeUpLock) {
+                            waking = false;
+                            wakeUpLock.notifyAll();
+                        }
+                    };
+        }
+
+        /** Returns whether the looper has yet to handle the message it was woken by. */
+        boolean isWaking() {
+            // the wake-up message of a looper whose thread has ended is never handled.
+            return waking && inspector.looper.getThread().isAlive();
+        }
+
+        /** Returns when the next task of this looper is due, after waking it if that is now. */
+        long wakeIfDue(long now) {
+            if (!inspector.looper.getThread().isAlive()) {
+                // a looper whose thread has ended can no longer run tasks.
+                waking = false;
+                return Long.MAX_VALUE;
+            }
+            if (waking) {
+                return now;
+            }
+            inspector.refresh();
+            long nextWhen = inspector.nextWhen();
+            if (nextWhen > now) {
+                return nextWhen;
+            }
+            // asynchronous, so that it gets past a barrier like the due task it waits for.
+            Message message = Message.obtain(handler, wakeUp);
+            message.setAsynchronous(true);
+            waking = true;
+            handler.sendMessage(message);
+            return now;
+        }
+    }
 }
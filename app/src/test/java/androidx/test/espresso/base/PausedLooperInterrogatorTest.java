@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.test.espresso.base;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.MessageQueue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.util.ReflectionHelpers;
+import org.robolectric.util.ReflectionHelpers.ClassParameter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class PausedLooperInterrogatorTest {
+    private static final long DELAY_MILLIS = 60_000L;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Test
+    public void sleepMillisForSkew_sleepsOnlyForTheExcessSkew() {
+        assertEquals(0L, PausedLooperInterrogator.sleepMillisForSkew(100L, 100L, 0L));
+        assertEquals(0L, PausedLooperInterrogator.sleepMillisForSkew(150L, 100L, 50L));
+        assertEquals(30L, PausedLooperInterrogator.sleepMillisForSkew(180L, 100L, 50L));
+    }
+
+    @Test
+    public void sleepMillisForSkew_unboundedSkew_neverSleeps() {
+        // the wall clock is ahead of the Robolectric clock, e.g. after a slow task.
+        assertEquals(0L, PausedLooperInterrogator.sleepMillisForSkew(0L, 20L, Long.MAX_VALUE));
+        assertEquals(
+                0L, PausedLooperInterrogator.sleepMillisForSkew(DELAY_MILLIS, 0L, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void loopAndInterrogate_unboundedSkew_runsDelayedTaskAfterSlowTask() {
+        boolean[] ran = new boolean[1];
+        // takes wall time but no Robolectric time, so the wall clock gets ahead.
+        handler.post(PausedLooperInterrogatorTest::sleepOnWallClock);
+        handler.postDelayed(() -> ran[0] = true, DELAY_MILLIS);
+
+        long start = PausedLooperInterrogator.wallClockMillis();
+        PausedLooperInterrogator.loopAndInterrogate(new UntilEmpty(), Long.MAX_VALUE);
+
+        assertTrue(ran[0]);
+        assertTrue(PausedLooperInterrogator.wallClockMillis() - start < DELAY_MILLIS);
+    }
+
+    @Test
+    public void loopAndInterrogate_barrierWithoutAsyncMessage_quits() {
+        boolean[] ran = new boolean[1];
+        int token = postSyncBarrier();
+        try {
+            handler.post(() -> ran[0] = true);
+
+            PausedLooperInterrogator.loopAndInterrogate(new UntilEmpty());
+
+            assertFalse(ran[0]);
+        } finally {
+            removeSyncBarrier(token);
+        }
+    }
+
+    @Test
+    public void loopAndInterrogate_barrierWithAsyncMessage_runsOnlyAsyncMessage() {
+        boolean[] ranSync = new boolean[1];
+        boolean[] ranAsync = new boolean[1];
+        int token = postSyncBarrier();
+        try {
+            handler.post(() -> ranSync[0] = true);
+            Message async = Message.obtain(handler, () -> ranAsync[0] = true);
+            async.setAsynchronous(true);
+            handler.sendMessageDelayed(async, DELAY_MILLIS);
+
+            PausedLooperInterrogator.loopAndInterrogate(new UntilEmpty(), Long.MAX_VALUE);
+
+            assertTrue(ranAsync[0]);
+            assertFalse(ranSync[0]);
+        } finally {
+            removeSyncBarrier(token);
+        }
+    }
+
+    private static int postSyncBarrier() {
+        return ReflectionHelpers.<Integer>callInstanceMethod(mainQueue(), "postSyncBarrier");
+    }
+
+    private static void removeSyncBarrier(int token) {
+        ReflectionHelpers.callInstanceMethod(
+                mainQueue(), "removeSyncBarrier", ClassParameter.from(int.class, token));
+    }
+
+    private static MessageQueue mainQueue() {
+        return Looper.getMainLooper().getQueue();
+    }
+
+    private static void sleepOnWallClock() {
+        try {
+            Thread.sleep(20L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Loops until the main queue is empty. */
+    private static final class UntilEmpty
+            implements PausedLooperInterrogator.InterrogationHandler<Void> {
+        @Override
+        public boolean queueEmpty() {
+            return false;
+        }
+
+        @Override
+        public boolean taskDueSoon() {
+            return true;
+        }
+
+        @Override
+        public boolean taskDueLong() {
+            return true;
+        }
+
+        @Override
+        public boolean barrierUp() {
+            return true;
+        }
+
+        @Override
+        public boolean beforeTaskDispatch() {
+            return true;
+        }
+
+        @Override
+        public void quitting() {}
+
+        @Override
+        public Void get() {
+            return null;
+        }
+    }
+}
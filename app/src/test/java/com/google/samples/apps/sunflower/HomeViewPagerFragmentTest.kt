@@ -0,0 +1,70 @@
+package com.google.samples.apps.sunflower
+
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.espresso.IdlingRegistry
+import androidx.test.ext.junit.rules.activityScenarioRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.example.github.util.TaskExecutorWithIdlingResourceRule
+import com.example.android.architecture.blueprints.todoapp.util.DataBindingIdlingResource
+import com.example.android.architecture.blueprints.todoapp.util.monitorActivity
+import com.google.samples.apps.sunflower.page.MyGardenPage
+import org.junit.After
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.LooperMode
+
+@RunWith(AndroidJUnit4::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(application = InMemoryTestApplication::class)
+class HomeViewPagerFragmentTest {
+
+    @get:Rule
+    val activityScenarioRule = activityScenarioRule<GardenActivity>()
+
+    @get:Rule
+    val taskExecutorWithIdlingResourceRule = TaskExecutorWithIdlingResourceRule()
+
+    private val dataBindingIdlingResource = DataBindingIdlingResource()
+
+    @Before
+    fun setUp() {
+        dataBindingIdlingResource.monitorActivity(activityScenarioRule.scenario)
+        IdlingRegistry.getInstance().register(dataBindingIdlingResource)
+    }
+
+    @After
+    fun tearDown() {
+        IdlingRegistry.getInstance().unregister(dataBindingIdlingResource)
+        dataBindingIdlingResource.release()
+        TestIsolation.reset()
+    }
+
+    @Test
+    fun switchingTabsKeepsPlantListViewHolders() {
+        val plantListPage = MyGardenPage.goPlantList()
+        val (list, holders) = plantListViewHolders()
+        assertTrue(holders.isNotEmpty())
+
+        plantListPage.goMyGarden().goPlantList()
+
+        val (listAfterSwitch, holdersAfterSwitch) = plantListViewHolders()
+        assertSame(list, listAfterSwitch)
+        holdersAfterSwitch.forEach { holder ->
+            assertTrue("$holder was inflated again", holders.any { it === holder })
+        }
+    }
+
+    private fun plantListViewHolders(): Pair<RecyclerView, List<RecyclerView.ViewHolder>> {
+        lateinit var result: Pair<RecyclerView, List<RecyclerView.ViewHolder>>
+        activityScenarioRule.scenario.onActivity { activity ->
+            val list = activity.findViewById<RecyclerView>(R.id.plant_list)
+            result = list to List(list.childCount) { list.getChildViewHolder(list.getChildAt(it)) }
+        }
+        return result
+    }
+}
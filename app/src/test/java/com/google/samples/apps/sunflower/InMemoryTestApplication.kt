@@ -0,0 +1,14 @@
+package com.google.samples.apps.sunflower
+
+/**
+ * A [TestApplication] whose database lives in memory.
+ *
+ * Every test gets a new database, which is seeded from `plants.json` without WorkManager when it
+ * is built, and no database file is created or deleted. Use it with
+ * `@Config(application = InMemoryTestApplication::class)` and call [TestIsolation.reset] after
+ * each test.
+ */
+class InMemoryTestApplication : TestApplication() {
+
+    override fun useInMemoryDatabase() = true
+}
@@ -1,20 +1,18 @@
 package com.google.samples.apps.sunflower
 
 
-import androidx.test.core.app.ApplicationProvider
 import androidx.test.espresso.IdlingRegistry
-import androidx.test.espresso.idling.concurrent.IdlingThreadPoolExecutor
+import androidx.test.espresso.base.IdlingReportRule
 import androidx.test.ext.junit.rules.activityScenarioRule
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.LargeTest
 import com.android.example.github.util.TaskExecutorWithIdlingResourceRule
 import com.example.android.architecture.blueprints.todoapp.util.DataBindingIdlingResource
 import com.example.android.architecture.blueprints.todoapp.util.monitorActivity
-import com.google.samples.apps.sunflower.data.AppDatabase
 import com.google.samples.apps.sunflower.page.MyGardenPage
-import com.google.samples.apps.sunflower.viewmodels.PlantDetailViewModel
-import kotlinx.coroutines.asCoroutineDispatcher
-import kotlinx.coroutines.asExecutor
+import com.google.samples.apps.sunflower.util.CoroutineIdlingResource
+import com.google.samples.apps.sunflower.utilities.CoroutineDispatcherProvider
+import com.google.samples.apps.sunflower.utilities.InjectorUtils
 import org.junit.After
 import org.junit.Before
 import org.junit.Rule
@@ -22,16 +20,16 @@ import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.annotation.Config
 import org.robolectric.annotation.LooperMode
-import java.util.*
-import java.util.concurrent.LinkedBlockingDeque
-import java.util.concurrent.TimeUnit
 
 @LargeTest
 @RunWith(AndroidJUnit4::class)
 @LooperMode(LooperMode.Mode.PAUSED)
-@Config(application = TestApplication::class)
+@Config(application = InMemoryTestApplication::class)
 class RobolectricGardenActivityTest2 {
 
+    @get:Rule
+    val idlingReportRule = IdlingReportRule()
+
     @get:Rule
     val activityScenarioRule = activityScenarioRule<GardenActivity>()
 
@@ -40,35 +38,26 @@ class RobolectricGardenActivityTest2 {
 
     private val dataBindingIdlingResource = DataBindingIdlingResource()
 
-    // resourceName of IdlingThreadPoolExecutor must be unique
-    private var idlingThreadPoolExecutor = IdlingThreadPoolExecutor("coroutine dispatcher id=${UUID.randomUUID()}",
-            2,
-            10,
-            0,
-            TimeUnit.MILLISECONDS,
-            LinkedBlockingDeque<Runnable>()
-    ) { Thread(it) }
+    private val coroutineIdlingResource = CoroutineIdlingResource()
 
     @Before
     fun setUp() {
         val idlingRegistry = IdlingRegistry.getInstance()
-        PlantDetailViewModel.overrideDispatcher = idlingThreadPoolExecutor.asCoroutineDispatcher()
+        InjectorUtils.dispatcherProvider =
+                CoroutineDispatcherProvider(default = coroutineIdlingResource.dispatcher)
+        idlingRegistry.register(coroutineIdlingResource)
         dataBindingIdlingResource.monitorActivity(activityScenarioRule.scenario)
         idlingRegistry.register(dataBindingIdlingResource)
     }
 
     @After
     fun tearDown() {
-        IdlingRegistry.getInstance().unregister(dataBindingIdlingResource)
-        val appDatabase = AppDatabase.getInstance(ApplicationProvider.getApplicationContext())
-        appDatabase.close()
+        IdlingRegistry.getInstance()
+                .unregister(dataBindingIdlingResource, coroutineIdlingResource)
+        dataBindingIdlingResource.release()
         // We must clear the singleton instance of AppDatabase
-        // because the database file is removed before next test.
-        AppDatabase.clear()
-
-        // Shutdown IdlingThreadPoolExecutor in order to unregister it.
-        PlantDetailViewModel.overrideDispatcher = null
-        idlingThreadPoolExecutor.shutdown()
+        // because Robolectric closes its connections before next test.
+        TestIsolation.reset()
     }
 
     @Test
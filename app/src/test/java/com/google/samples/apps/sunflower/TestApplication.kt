@@ -8,13 +8,16 @@ import com.google.samples.apps.sunflower.data.GardenPlantingRepository
 import com.google.samples.apps.sunflower.data.PlantRepository
 import org.robolectric.shadows.ShadowLog
 
-class TestApplication : Application() {
+open class TestApplication : Application() {
 
     override fun onCreate() {
         super.onCreate()
         // uncomment below to print logcat
         // ShadowLog.stream = System.out
-        WorkManagerTestInitHelper.initializeTestWorkManager(this)
+        AppDatabase.inMemory = useInMemoryDatabase()
+        if (needsWorkManager()) {
+            WorkManagerTestInitHelper.initializeTestWorkManager(this)
+        }
 
         // We must get AppDatabase instance again
         // because Robolectric creates database files whenever test is started.
@@ -24,4 +27,16 @@ class TestApplication : Application() {
         GardenPlantingRepository.updateDao(db.gardenPlantingDao())
         PlantRepository.updateDao(db.plantDao())
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns whether WorkManager is used while the test runs.
+     * The app only uses it to seed a newly created database.
+     */
+    protected open fun needsWorkManager() = !useInMemoryDatabase()
+
+    /**
+     * Returns whether the test uses an in-memory database, which is seeded when it is built
+     * and queried on the calling thread. The app does not notice the difference.
+     */
+    protected open fun useInMemoryDatabase() = false
+}
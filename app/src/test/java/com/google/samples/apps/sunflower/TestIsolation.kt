@@ -0,0 +1,26 @@
+package com.google.samples.apps.sunflower
+
+import com.google.samples.apps.sunflower.data.AppDatabase
+import com.google.samples.apps.sunflower.data.GardenPlantingRepository
+import com.google.samples.apps.sunflower.data.PlantRepository
+import com.google.samples.apps.sunflower.utilities.CoroutineDispatcherProvider
+import com.google.samples.apps.sunflower.utilities.InjectorUtils
+
+/**
+ * Resets the singletons of the app after a test.
+ *
+ * Every Robolectric sandbox loads the app classes, and so these singletons, on its own, and every
+ * Gradle test fork has its own sandboxes and application data directory. What tests share is the
+ * sandbox of the same test JVM, which keeps the singletons from one test to the next; call [reset]
+ * in `@After` so that the next test starts from the Application that Robolectric creates for it.
+ */
+object TestIsolation {
+
+    fun reset() {
+        // Robolectric closes all SQLite connections before the next test.
+        AppDatabase.clear()
+        GardenPlantingRepository.clear()
+        PlantRepository.clear()
+        InjectorUtils.dispatcherProvider = CoroutineDispatcherProvider()
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.data
+
+import android.app.Application
+import android.content.Context
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import androidx.lifecycle.LiveData
+import androidx.lifecycle.Observer
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.util.concurrent.Executor
+
+@RunWith(AndroidJUnit4::class)
+@Config(application = Application::class)
+class GardenPlantingDaoTest {
+
+    @get:Rule
+    val instantTaskExecutorRule = InstantTaskExecutorRule()
+
+    private lateinit var database: AppDatabase
+    private lateinit var gardenPlantingDao: GardenPlantingDao
+
+    // inserted in this order, which is not the order of their names.
+    private val zucchini = Plant("cucurbita-pepo", "Zucchini", "", 1, wateringInterval = 2)
+    private val apple = Plant("malus-pumila", "Apple", "", 3, wateringInterval = 30)
+    private val beet = Plant("beta-vulgaris", "Beet", "", 2)
+
+    @Before
+    fun setUp() = runBlocking {
+        val directExecutor = Executor { it.run() }
+        database = Room.inMemoryDatabaseBuilder(
+                ApplicationProvider.getApplicationContext<Context>(), AppDatabase::class.java)
+                .setQueryExecutor(directExecutor)
+                .setTransactionExecutor(directExecutor)
+                .allowMainThreadQueries()
+                .build()
+        gardenPlantingDao = database.gardenPlantingDao()
+        database.plantDao().insertAll(listOf(zucchini, apple, beet))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun getGardenPlantingSummaries_groupsPlantingsOfAPlant() = runBlocking {
+        val firstApple = gardenPlantingDao.insertGardenPlanting(
+                GardenPlanting(apple.plantId, plantDateMillis = 2_000L,
+                        lastWateringDateMillis = 5_000L))
+        val onlyZucchini = gardenPlantingDao.insertGardenPlanting(
+                GardenPlanting(zucchini.plantId, plantDateMillis = 1_000L,
+                        lastWateringDateMillis = 1_000L))
+        gardenPlantingDao.insertGardenPlanting(
+                GardenPlanting(apple.plantId, plantDateMillis = 3_000L,
+                        lastWateringDateMillis = 4_000L))
+
+        val summaries = gardenPlantingDao.getGardenPlantingSummaries().valueNow()
+
+        // in the order of the plants table, and without the plant that was never planted.
+        assertEquals(
+                listOf(
+                        GardenPlantingSummary(onlyZucchini, zucchini.plantId, zucchini.name,
+                                zucchini.imageUrl, zucchini.wateringInterval, 1_000L, 1_000L),
+                        // the earliest planting, but the latest watering of any planting.
+                        GardenPlantingSummary(firstApple, apple.plantId, apple.name,
+                                apple.imageUrl, apple.wateringInterval, 2_000L, 5_000L)
+                ),
+                summaries)
+    }
+
+    @Test
+    fun getGardenPlantingSummaries_emptyGarden() {
+        assertEquals(emptyList<GardenPlantingSummary>(),
+                gardenPlantingDao.getGardenPlantingSummaries().valueNow())
+    }
+
+    // Room runs the query on the direct executor, and the rule posts its result right away.
+    private fun <T> LiveData<T>.valueNow(): T {
+        var value: T? = null
+        val observer = Observer<T> { value = it }
+        observeForever(observer)
+        removeObserver(observer)
+        return value ?: throw AssertionError("LiveData has no value")
+    }
+}
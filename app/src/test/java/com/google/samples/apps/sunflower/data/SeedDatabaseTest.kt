@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.data
+
+import android.app.Application
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.gson.stream.JsonReader
+import com.google.samples.apps.sunflower.utilities.PLANT_DATA_FILENAME
+import com.google.samples.apps.sunflower.utilities.SEED_DATABASE_ASSET
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.util.concurrent.Executor
+
+/**
+ * Opens the prepopulated database that app/build.gradle generates through Room. Room validates the
+ * version, tables and indices of a copied database against [AppDatabase] before it uses it, so this
+ * fails when the hand-written schema of the generator no longer matches the entities.
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(application = Application::class)
+class SeedDatabaseTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val directExecutor = Executor { it.run() }
+    private val database = Room.databaseBuilder(context, AppDatabase::class.java, DATABASE)
+            .createFromAsset(SEED_DATABASE_ASSET)
+            .setQueryExecutor(directExecutor)
+            .setTransactionExecutor(directExecutor)
+            .allowMainThreadQueries()
+            .build()
+
+    @After
+    fun tearDown() {
+        database.close()
+        context.deleteDatabase(DATABASE)
+    }
+
+    @Test
+    fun seedDatabase_matchesSchemaAndContainsEveryPlant() {
+        // Room opens the copy on the first query and throws if it needs a migration or its
+        // schema is invalid.
+        val plantCount = runBlocking { database.plantDao().getPlantCount() }
+
+        assertEquals(countPlantsInJson(), plantCount)
+    }
+
+    private fun countPlantsInJson(): Int {
+        var count = 0
+        context.assets.open(PLANT_DATA_FILENAME).use { inputStream ->
+            JsonReader(inputStream.reader()).use { jsonReader ->
+                jsonReader.beginArray()
+                while (jsonReader.hasNext()) {
+                    jsonReader.skipValue()
+                    count++
+                }
+                jsonReader.endArray()
+            }
+        }
+        return count
+    }
+
+    companion object {
+        private const val DATABASE = "seed-database-test"
+    }
+}
@@ -0,0 +1,23 @@
+package com.google.samples.apps.sunflower.images
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Test
+
+class ImageSizeTest {
+
+    @Test
+    fun bucket_roundsWidthUpAndKeepsAspectRatio() {
+        assertArrayEquals(intArrayOf(720, 271), ImageSize.bucket(540, 203))
+        assertArrayEquals(intArrayOf(720, 267), ImageSize.bucket(700, 260))
+    }
+
+    @Test
+    fun bucket_keepsExactBucketWidth() {
+        assertArrayEquals(intArrayOf(1080, 834), ImageSize.bucket(1080, 834))
+    }
+
+    @Test
+    fun bucket_keepsWidthAboveLargestBucket() {
+        assertArrayEquals(intArrayOf(2000, 500), ImageSize.bucket(2000, 500))
+    }
+}
@@ -0,0 +1,63 @@
+package com.google.samples.apps.sunflower.utilities
+
+import android.app.Application
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.util.Locale
+import java.util.TimeZone
+import java.util.concurrent.TimeUnit
+
+// Robolectric only provides the LongSparseArray that the cache keeps its labels in.
+@RunWith(AndroidJUnit4::class)
+@Config(application = Application::class)
+class DateLabelCacheTest {
+
+    // UTC+9, so that days do not start at multiples of DAY_MILLIS since the epoch.
+    private val cache = DateLabelCache("MMM d, yyyy", Locale.US, TimeZone.getTimeZone("Asia/Tokyo"))
+
+    @Test
+    fun format_reusesTheLabelOfTheSameDay() {
+        val morning = cache.format(JAN_1_2020_TOKYO + TimeUnit.HOURS.toMillis(1))
+        val evening = cache.format(JAN_1_2020_TOKYO + TimeUnit.HOURS.toMillis(23))
+
+        assertEquals("Jan 1, 2020", morning)
+        assertSame(morning, evening)
+    }
+
+    @Test
+    fun format_startsANewDayAtLocalMidnight() {
+        assertEquals("Dec 31, 2019", cache.format(JAN_1_2020_TOKYO - 1))
+        assertEquals("Jan 1, 2020", cache.format(JAN_1_2020_TOKYO))
+    }
+
+    @Test
+    fun format_datesBeforeTheEpoch() {
+        assertEquals("Dec 31, 1969", cache.format(-TimeUnit.HOURS.toMillis(10)))
+        assertEquals("Jan 1, 1970", cache.format(-TimeUnit.HOURS.toMillis(9)))
+    }
+
+    @Test
+    fun format_evictsLabelsWhenFull() {
+        val first = cache.format(JAN_1_2020_TOKYO)
+        for (day in 1 until DateLabelCache.MAX_SIZE) {
+            cache.format(JAN_1_2020_TOKYO + TimeUnit.DAYS.toMillis(day.toLong()))
+        }
+        assertSame(first, cache.format(JAN_1_2020_TOKYO))
+
+        cache.format(JAN_1_2020_TOKYO + TimeUnit.DAYS.toMillis(DateLabelCache.MAX_SIZE.toLong()))
+        val again = cache.format(JAN_1_2020_TOKYO)
+
+        assertEquals(first, again)
+        assertNotSame(first, again)
+    }
+
+    companion object {
+        // 2020-01-01T00:00+09:00
+        private const val JAN_1_2020_TOKYO = 1_577_804_400_000L
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.sunflower.views
+
+import android.app.Application
+import android.content.Context
+import android.graphics.Canvas
+import android.graphics.Outline
+import android.graphics.Path
+import android.util.AttributeSet
+import android.view.ContextThemeWrapper
+import android.view.View
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.samples.apps.sunflower.R
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.annotation.Config
+
+@RunWith(AndroidJUnit4::class)
+@Config(application = Application::class)
+class MaskedCardViewTest {
+
+    private val context: Context = ContextThemeWrapper(
+            ApplicationProvider.getApplicationContext<Context>(), R.style.Theme_Sunflower)
+
+    @Test
+    fun uniformCorners_clipToOutline() {
+        // the default shape of a Material card has the same radius at every corner.
+        val card = layOut(MaskedCardView(context))
+
+        assertTrue(card.clipToOutline)
+        val outline = Outline()
+        card.outlineProvider.getOutline(card, outline)
+        assertNotEquals(0f, outline.radius)
+
+        assertFalse("clipped to a path", drawClipsPath(card))
+    }
+
+    @Test
+    fun asymmetricCorners_clipToPath() {
+        val attrs: AttributeSet = Robolectric.buildAttributeSet()
+                .addAttribute(com.google.android.material.R.attr.shapeAppearanceOverlay,
+                        "@style/ShapeAppearance.Sunflower.Card")
+                .build()
+        val defaultOutlineProvider = MaskedCardView(context).outlineProvider
+        val card = layOut(MaskedCardView(context, attrs))
+
+        assertFalse(card.clipToOutline)
+        assertEquals(defaultOutlineProvider.javaClass, card.outlineProvider.javaClass)
+
+        assertTrue("not clipped to a path", drawClipsPath(card))
+    }
+
+    private fun layOut(card: MaskedCardView) = card.apply {
+        measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY))
+        layout(0, 0, WIDTH, HEIGHT)
+    }
+
+    private fun drawClipsPath(card: MaskedCardView): Boolean {
+        var clipped = false
+        card.draw(object : Canvas() {
+            override fun clipPath(path: Path): Boolean {
+                clipped = true
+                return super.clipPath(path)
+            }
+        })
+        return clipped
+    }
+
+    companion object {
+        private const val WIDTH = 400
+        private const val HEIGHT = 300
+    }
+}
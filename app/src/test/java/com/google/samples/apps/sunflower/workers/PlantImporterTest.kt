@@ -0,0 +1,81 @@
+package com.google.samples.apps.sunflower.workers
+
+import androidx.lifecycle.LiveData
+import androidx.paging.DataSource
+import com.google.samples.apps.sunflower.data.Plant
+import com.google.samples.apps.sunflower.data.PlantDao
+import com.google.samples.apps.sunflower.data.PlantSummary
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.StringReader
+
+class PlantImporterTest {
+
+    // a null entry and a plant whose id repeats make the row count differ from the index.
+    private val json = """
+        [${plant("a")}, null, ${plant("b")}, ${plant("a")}, ${plant("c")}, ${plant("d")}]
+        """
+
+    private val plantDao = RecordingPlantDao()
+
+    @Test
+    fun importPlants_insertsEveryPlantInBatches() = runBlocking {
+        val indices = mutableListOf<Int>()
+
+        val imported = importPlants(StringReader(json), plantDao, BATCH_SIZE) { indices += it }
+
+        assertEquals(6, imported)
+        assertEquals(listOf(3, 5), indices)
+        assertEquals(listOf(listOf("a", "b"), listOf("a", "c"), listOf("d")), plantDao.batches)
+    }
+
+    @Test
+    fun importPlants_resumesAtTheIndexOfTheLastBatch() = runBlocking {
+        var nextIndex = 0
+        try {
+            importPlants(StringReader(json), plantDao, BATCH_SIZE) {
+                nextIndex = it
+                throw StoppedException()
+            }
+        } catch (expected: StoppedException) {
+        }
+
+        val imported = importPlants(StringReader(json), plantDao, BATCH_SIZE, nextIndex)
+
+        assertEquals(6, imported)
+        assertEquals(listOf(listOf("a", "b"), listOf("a", "c"), listOf("d")), plantDao.batches)
+    }
+
+    private fun plant(id: String) =
+        """{"plantId": "$id", "name": "$id", "description": "", "growZoneNumber": 1}"""
+
+    private class StoppedException : RuntimeException()
+
+    private class RecordingPlantDao : PlantDao {
+        val batches = mutableListOf<List<String>>()
+
+        override suspend fun insertAll(plants: List<Plant>) {
+            batches += plants.map { it.plantId }
+        }
+
+        override fun getPlantSummaries(): DataSource.Factory<Int, PlantSummary> =
+            throw UnsupportedOperationException()
+
+        override fun getPlantSummariesWithGrowZoneNumber(
+            growZoneNumber: Int
+        ): DataSource.Factory<Int, PlantSummary> = throw UnsupportedOperationException()
+
+        override fun getPlant(plantId: String): LiveData<Plant> =
+            throw UnsupportedOperationException()
+
+        override suspend fun getPlantCount(): Int = throw UnsupportedOperationException()
+
+        override suspend fun getPlantDescription(plantId: String): String? =
+            throw UnsupportedOperationException()
+    }
+
+    companion object {
+        private const val BATCH_SIZE = 2
+    }
+}
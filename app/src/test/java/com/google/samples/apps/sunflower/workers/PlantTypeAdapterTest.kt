@@ -0,0 +1,54 @@
+package com.google.samples.apps.sunflower.workers
+
+import com.google.gson.JsonParseException
+import com.google.gson.stream.JsonReader
+import com.google.samples.apps.sunflower.data.Plant
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.io.StringReader
+
+class PlantTypeAdapterTest {
+
+    private val adapter = PlantTypeAdapter()
+
+    @Test
+    fun read_readsEveryField() {
+        val plant = read("""
+            {"plantId": "malus-pumila", "name": "Apple", "description": "A fruit.",
+             "growZoneNumber": 3, "wateringInterval": 30, "imageUrl": "https://example.com/a.jpg"}
+            """)
+
+        assertEquals(Plant("malus-pumila", "Apple", "A fruit.", 3, 30, "https://example.com/a.jpg"),
+                plant)
+    }
+
+    @Test
+    fun read_defaultsMissingOptionalFieldsAndSkipsUnknownOnes() {
+        val plant = read("""
+            {"plantId": "beta-vulgaris", "name": "Beet", "unknown": {"nested": [1, 2]},
+             "description": "A root.", "growZoneNumber": 2}
+            """)
+
+        assertEquals(Plant("beta-vulgaris", "Beet", "A root.", 2), plant)
+    }
+
+    @Test
+    fun read_returnsNullForNull() {
+        assertNull(read("null"))
+    }
+
+    @Test(expected = JsonParseException::class)
+    fun read_failsWithoutRequiredField() {
+        read("""{"plantId": "beta-vulgaris", "name": "Beet", "growZoneNumber": 2}""")
+    }
+
+    @Test
+    fun write_isReadBackUnchanged() {
+        val plant = Plant("malus-pumila", "Apple", "A fruit.", 3, 30, "https://example.com/a.jpg")
+
+        assertEquals(plant, adapter.fromJson(adapter.toJson(plant)))
+    }
+
+    private fun read(json: String) = JsonReader(StringReader(json)).use { adapter.read(it) }
+}